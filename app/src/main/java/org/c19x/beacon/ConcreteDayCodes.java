@@ -5,47 +5,132 @@ import org.c19x.data.primitive.Tuple;
 import org.c19x.data.type.BeaconCodeSeed;
 import org.c19x.data.type.Day;
 import org.c19x.data.type.DayCode;
+import org.c19x.data.type.DayCodeCheckpoints;
 import org.c19x.data.type.SharedSecret;
 
-import java.nio.ByteBuffer;
 import java.security.MessageDigest;
-import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class ConcreteDayCodes implements DayCodes {
 	private final static String tag = ConcreteDayCodes.class.getName();
-	private final static long epoch = epoch();
+	private final static int days = 365 * 5;
+	/// Day codes for all days in eager mode, null in lazy mode
 	private final DayCode[] values;
+	/// Lazy mode hash chain checkpoints, checkpoint k is the hash for day (days - 1 - k * checkpointInterval)
+	private final int checkpointInterval;
+	private final byte[][] checkpoints;
+	private int checkpointCount = 0;
+	/// Lazy mode cache of recently used day codes
+	private final static int recentDays = 8;
+	private final Map<Integer, DayCode> recent = new LinkedHashMap<Integer, DayCode>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, DayCode> eldest) {
+			return size() > recentDays;
+		}
+	};
 
+	/**
+	 * Day codes for all days, derived eagerly.
+	 */
 	public ConcreteDayCodes(final SharedSecret sharedSecret) {
-		final int days = 365 * 5;
 		values = dayCodes(sharedSecret, days);
+		checkpointInterval = 0;
+		checkpoints = null;
+	}
+
+	/**
+	 * Day codes derived on demand from sparse checkpoints of the hash chain, where each day code
+	 * is at most checkpointInterval - 1 hashes forward from its nearest later checkpoint. The
+	 * chain is only walked as far back as the earliest day requested.
+	 */
+	public ConcreteDayCodes(final SharedSecret sharedSecret, final int checkpointInterval) {
+		this(sharedSecret, checkpointInterval, null);
 	}
 
-	private final static long epoch() {
+	/**
+	 * Lazy day codes starting from cached checkpoints, if they were derived from the same shared
+	 * secret with the same interval, otherwise starting from the shared secret only.
+	 */
+	public ConcreteDayCodes(final SharedSecret sharedSecret, final int checkpointInterval, final DayCodeCheckpoints cached) {
+		values = null;
+		this.checkpointInterval = Math.max(1, checkpointInterval);
+		checkpoints = new byte[(days - 1) / this.checkpointInterval + 1][];
 		try {
-			final SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-			simpleDateFormat.setLenient(false);
-			return simpleDateFormat.parse("2020-01-01 00:00").getTime();
+			final MessageDigest sha = MessageDigest.getInstance("SHA-256");
+			checkpoints[0] = sha.digest(sharedSecret.value);
+			checkpointCount = 1;
 		} catch (Throwable e) {
-			Logger.warn(tag, "Failed to get epoch", e);
-			return 0;
+			Logger.warn(tag, "Failed to get codes", e);
+			return;
+		}
+		if (cached == null) {
+			return;
 		}
+		if (cached.interval != this.checkpointInterval || cached.value.length > checkpoints.length || !Arrays.equals(cached.value[0], checkpoints[0])) {
+			Logger.warn(tag, "Cached day code checkpoints invalid (cached={})", cached);
+			return;
+		}
+		for (int i = 1; i < cached.value.length; i++) {
+			if (cached.value[i] == null || cached.value[i].length != checkpoints[0].length) {
+				Logger.warn(tag, "Cached day code checkpoints invalid (cached={})", cached);
+				return;
+			}
+		}
+		System.arraycopy(cached.value, 1, checkpoints, 1, cached.value.length - 1);
+		checkpointCount = cached.value.length;
 	}
 
-	private final static long longValue(final byte[] hash) {
-		final ByteBuffer byteBuffer = ByteBuffer.wrap(hash);
-		return byteBuffer.getLong(0);
+	/**
+	 * Test whether lazy mode checkpoints cover all days, thus no more chain walking is required.
+	 */
+	public boolean complete() {
+		synchronized (recent) {
+			return values != null || checkpointCount == checkpoints.length;
+		}
+	}
+
+	/**
+	 * Get lazy mode checkpoints for caching, extending the chain to cover all days first. This
+	 * walks the remainder of the chain, thus should be called in the background.
+	 */
+	public DayCodeCheckpoints checkpoints() {
+		if (values != null) {
+			return null;
+		}
+		synchronized (recent) {
+			try {
+				extend(checkpoints.length - 1, new Sha256(), new int[8]);
+			} catch (Throwable e) {
+				Logger.warn(tag, "Failed to get codes", e);
+			}
+			return new DayCodeCheckpoints(checkpointInterval, Arrays.copyOf(checkpoints, checkpointCount));
+		}
+	}
+
+	/**
+	 * Extend chain back to checkpoint.
+	 */
+	private void extend(final int checkpoint, final Sha256 sha, final int[] state) {
+		while (checkpointCount > 0 && checkpointCount <= checkpoint) {
+			Sha256.state(checkpoints[checkpointCount - 1], state);
+			for (int i = 0; i < checkpointInterval; i++) {
+				sha.hash(state);
+			}
+			checkpoints[checkpointCount++] = Sha256.bytes(state);
+		}
 	}
 
 	private final static DayCode[] dayCodes(final SharedSecret sharedSecret, final int days) {
 		final DayCode[] codes = new DayCode[days];
 		try {
-			final MessageDigest sha = MessageDigest.getInstance("SHA-256");
-			byte[] hash = sha.digest(sharedSecret.value);
+			final int[] state = new int[8];
+			Sha256.state(MessageDigest.getInstance("SHA-256").digest(sharedSecret.value), state);
+			final Sha256 sha = new Sha256();
 			for (int i = codes.length; i-- > 0; ) {
-				codes[i] = new DayCode(longValue(hash));
-				sha.reset();
-				hash = sha.digest(hash);
+				codes[i] = new DayCode(Sha256.longValue(state));
+				sha.hash(state);
 			}
 		} catch (Throwable e) {
 			Logger.warn(tag, "Failed to get codes", e);
@@ -53,19 +138,51 @@ public class ConcreteDayCodes implements DayCodes {
 		return codes;
 	}
 
+	/**
+	 * Get day code for day, or null if day is out of range.
+	 */
+	final DayCode dayCode(final int day) {
+		if (day < 0 || day >= days) {
+			return null;
+		}
+		if (values != null) {
+			return values[day];
+		}
+		synchronized (recent) {
+			final DayCode cached = recent.get(day);
+			if (cached != null) {
+				return cached;
+			}
+			try {
+				final Sha256 sha = new Sha256();
+				final int[] state = new int[8];
+				// Nearest later checkpoint, extending chain back to it if required
+				final int distance = days - 1 - day;
+				final int checkpoint = distance / checkpointInterval;
+				extend(checkpoint, sha, state);
+				// Hash forward from checkpoint to day
+				Sha256.state(checkpoints[checkpoint], state);
+				for (int i = checkpoint * checkpointInterval; i < distance; i++) {
+					sha.hash(state);
+				}
+				final DayCode dayCode = new DayCode(Sha256.longValue(state));
+				recent.put(day, dayCode);
+				return dayCode;
+			} catch (Throwable e) {
+				Logger.warn(tag, "Failed to get codes", e);
+				return null;
+			}
+		}
+	}
+
 	private final static BeaconCodeSeed beaconCodeSeed(final DayCode dayCode, final Day day) {
-		final ByteBuffer byteBuffer = ByteBuffer.allocate(Long.BYTES);
-		byteBuffer.putLong(0, dayCode.value);
-		// Reverse bytes
-		final byte[] data = byteBuffer.array();
-		final byte[] reversed = new byte[]{data[7], data[6], data[5], data[4], data[3], data[2], data[1], data[0]};
-		// Hash of reversed
+		// Hash of reversed bytes
 		try {
-            final MessageDigest sha = MessageDigest.getInstance("SHA-256");
-            final byte[] hash = sha.digest(reversed);
-            final long seed = longValue(hash);
-            return new BeaconCodeSeed(seed);
-        } catch (Throwable e) {
+			final int[] state = new int[8];
+			new Sha256().hash(Long.reverseBytes(dayCode.value), state);
+			final long seed = Sha256.longValue(state);
+			return new BeaconCodeSeed(seed);
+		} catch (Throwable e) {
 			Logger.warn(tag, "Failed to transform day code to beacon code seed", e);
 			return null;
 		}
@@ -73,29 +190,34 @@ public class ConcreteDayCodes implements DayCodes {
 
 	@Override
 	public Day day() {
-		return new Day((int) ((System.currentTimeMillis() - epoch) / (24 * 60 * 60 * 1000)));
+		return new Day(Day.epochDay(System.currentTimeMillis()));
 	}
 
 	@Override
 	public DayCode get() {
-		try {
-			return values[day().value];
-		} catch (Throwable e) {
+		final DayCode dayCode = dayCode(day().value);
+		if (dayCode == null) {
 			Logger.warn(tag, "Day out of range");
-			return null;
 		}
+		return dayCode;
 	}
 
-    @Override
-    public Tuple<BeaconCodeSeed, Day> seed() {
-        final Day day = day();
-        try {
-            final DayCode dayCode = values[day.value];
-            final BeaconCodeSeed beaconCodeSeed = beaconCodeSeed(dayCode, day);
-            return new Tuple<>(beaconCodeSeed, day);
-        } catch (Throwable e) {
-            Logger.warn(tag, "Day out of range");
-            return null;
-        }
-    }
+	@Override
+	public Tuple<BeaconCodeSeed, Day> seed() {
+		return seed(day());
+	}
+
+	@Override
+	public Tuple<BeaconCodeSeed, Day> seed(final Day day) {
+		final DayCode dayCode = dayCode(day.value);
+		if (dayCode == null) {
+			Logger.warn(tag, "Day out of range (day={})", day);
+			return null;
+		}
+		final BeaconCodeSeed beaconCodeSeed = beaconCodeSeed(dayCode, day);
+		if (beaconCodeSeed == null) {
+			return null;
+		}
+		return new Tuple<>(beaconCodeSeed, day);
+	}
 }
@@ -18,7 +18,11 @@ public class ConcreteTransceiver implements Transceiver, ReceiverDelegate, Bluet
     private final Receiver receiver;
 
     public ConcreteTransceiver(Context context, SharedSecret sharedSecret, TimeInterval codeUpdateAfter) {
-        dayCodes = new ConcreteDayCodes(sharedSecret);
+        this(context, new ConcreteDayCodes(sharedSecret, 64), codeUpdateAfter);
+    }
+
+    public ConcreteTransceiver(Context context, DayCodes dayCodes, TimeInterval codeUpdateAfter) {
+        this.dayCodes = dayCodes;
         beaconCodes = new ConcreteBeaconCodes(dayCodes);
         bluetoothStateManager = new ConcreteBluetoothStateManager(context);
         transmitter = new ConcreteTransmitter(context, bluetoothStateManager, beaconCodes, codeUpdateAfter);
@@ -13,4 +13,6 @@ public interface DayCodes {
 
     Tuple<BeaconCodeSeed, Day> seed();
 
+    Tuple<BeaconCodeSeed, Day> seed(Day day);
+
 }
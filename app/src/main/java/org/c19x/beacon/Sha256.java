@@ -0,0 +1,120 @@
+package org.c19x.beacon;
+
+/**
+ * SHA-256 specialised for the fixed 8-byte and 32-byte messages of the beacon code and day code
+ * hash chains. Both fit in a single block with constant padding, and the hash state and message
+ * schedule are reused, thus hashing produces no garbage. Not thread safe, use one instance per thread.
+ */
+final class Sha256 {
+    final static int[] k = {
+            0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+            0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+            0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+            0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+            0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+            0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+            0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+            0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2};
+    final static int[] initial = {
+            0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19};
+    /// Message schedule
+    private final int[] w = new int[64];
+
+    /**
+     * Hash 8-byte message, given as big-endian long value, into 8 word state.
+     */
+    void hash(final long value, final int[] state) {
+        w[0] = (int) (value >>> 32);
+        w[1] = (int) value;
+        w[2] = 0x80000000;
+        for (int t = 3; t < 15; t++) {
+            w[t] = 0;
+        }
+        // Message length in bits
+        w[15] = 64;
+        compress(state);
+    }
+
+    /**
+     * Hash 32-byte message, given as 8 word state of the previous hash, in place.
+     */
+    void hash(final int[] state) {
+        System.arraycopy(state, 0, w, 0, 8);
+        w[8] = 0x80000000;
+        for (int t = 9; t < 15; t++) {
+            w[t] = 0;
+        }
+        // Message length in bits
+        w[15] = 256;
+        compress(state);
+    }
+
+    /**
+     * Compress single block in message schedule into state, starting from the initial hash value.
+     */
+    private void compress(final int[] state) {
+        final int[] w = this.w;
+        for (int t = 16; t < 64; t++) {
+            final int w2 = w[t - 2], w15 = w[t - 15];
+            final int s1 = Integer.rotateRight(w2, 17) ^ Integer.rotateRight(w2, 19) ^ (w2 >>> 10);
+            final int s0 = Integer.rotateRight(w15, 7) ^ Integer.rotateRight(w15, 18) ^ (w15 >>> 3);
+            w[t] = s1 + w[t - 7] + s0 + w[t - 16];
+        }
+        int a = initial[0], b = initial[1], c = initial[2], d = initial[3];
+        int e = initial[4], f = initial[5], g = initial[6], h = initial[7];
+        for (int t = 0; t < 64; t++) {
+            final int s1 = Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25);
+            final int ch = (e & f) ^ (~e & g);
+            final int t1 = h + s1 + ch + k[t] + w[t];
+            final int s0 = Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22);
+            final int maj = (a & b) ^ (a & c) ^ (b & c);
+            final int t2 = s0 + maj;
+            h = g;
+            g = f;
+            f = e;
+            e = d + t1;
+            d = c;
+            c = b;
+            b = a;
+            a = t1 + t2;
+        }
+        state[0] = initial[0] + a;
+        state[1] = initial[1] + b;
+        state[2] = initial[2] + c;
+        state[3] = initial[3] + d;
+        state[4] = initial[4] + e;
+        state[5] = initial[5] + f;
+        state[6] = initial[6] + g;
+        state[7] = initial[7] + h;
+    }
+
+    /**
+     * First 8 bytes of hash as big-endian long value.
+     */
+    final static long longValue(final int[] state) {
+        return ((long) state[0] << 32) | (state[1] & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Convert 32-byte hash to 8 word state.
+     */
+    final static void state(final byte[] hash, final int[] state) {
+        for (int i = 0, j = 0; i < 8; i++, j += 4) {
+            state[i] = (hash[j] << 24) | ((hash[j + 1] & 0xFF) << 16) | ((hash[j + 2] & 0xFF) << 8) | (hash[j + 3] & 0xFF);
+        }
+    }
+
+    /**
+     * Convert 8 word state to 32-byte hash.
+     */
+    final static byte[] bytes(final int[] state) {
+        final byte[] hash = new byte[32];
+        for (int i = 0, j = 0; i < 8; i++, j += 4) {
+            hash[j] = (byte) (state[i] >>> 24);
+            hash[j + 1] = (byte) (state[i] >>> 16);
+            hash[j + 2] = (byte) (state[i] >>> 8);
+            hash[j + 3] = (byte) state[i];
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,129 @@
+package org.c19x.beacon;
+
+/**
+ * Multi-buffer SHA-256 for advancing several independent beacon code hash chains in lockstep.
+ * State, working variables and message schedule hold one array of lanes per word, and every
+ * step is a loop over lanes with no dependency between iterations, which suits JIT vectorisation
+ * and instruction level parallelism. Not thread safe, use one instance per thread.
+ */
+final class Sha256Lanes {
+    private final static int[] k = Sha256.k;
+    private final static int[] initial = Sha256.initial;
+    /// Number of chains advanced in lockstep
+    final int lanes;
+    /// Message schedule, word t of lane l is w[t][l]
+    private final int[][] w;
+    /// Working variables a to h, rotated by reference rather than by copying each round
+    private final int[][] v;
+
+    Sha256Lanes(final int lanes) {
+        this.lanes = lanes;
+        this.w = new int[64][lanes];
+        this.v = new int[8][lanes];
+    }
+
+    /**
+     * Create state for all lanes, word i of lane l is state[i][l].
+     */
+    int[][] state() {
+        return new int[8][lanes];
+    }
+
+    /**
+     * Hash 8-byte messages, given as big-endian long values for each lane, into state.
+     */
+    void hash(final long[] values, final int[][] state) {
+        final int[] w0 = w[0], w1 = w[1];
+        for (int l = 0; l < lanes; l++) {
+            w0[l] = (int) (values[l] >>> 32);
+            w1[l] = (int) values[l];
+        }
+        pad(2, 64);
+        compress(state);
+    }
+
+    /**
+     * Hash 32-byte messages, given as state of the previous hashes, in place.
+     */
+    void hash(final int[][] state) {
+        for (int i = 0; i < 8; i++) {
+            System.arraycopy(state[i], 0, w[i], 0, lanes);
+        }
+        pad(8, 256);
+        compress(state);
+    }
+
+    /**
+     * Pad message of length words in each lane to a single block.
+     */
+    private void pad(final int length, final int bits) {
+        for (int t = length; t < 16; t++) {
+            final int word = (t == length ? 0x80000000 : (t == 15 ? bits : 0));
+            final int[] wt = w[t];
+            for (int l = 0; l < lanes; l++) {
+                wt[l] = word;
+            }
+        }
+    }
+
+    /**
+     * Compress single block in each lane of message schedule into state, starting from the initial hash value.
+     */
+    private void compress(final int[][] state) {
+        final int lanes = this.lanes;
+        for (int t = 16; t < 64; t++) {
+            final int[] wt = w[t], w2 = w[t - 2], w7 = w[t - 7], w15 = w[t - 15], w16 = w[t - 16];
+            for (int l = 0; l < lanes; l++) {
+                final int x = w2[l], y = w15[l];
+                final int s1 = Integer.rotateRight(x, 17) ^ Integer.rotateRight(x, 19) ^ (x >>> 10);
+                final int s0 = Integer.rotateRight(y, 7) ^ Integer.rotateRight(y, 18) ^ (y >>> 3);
+                wt[l] = s1 + w7[l] + s0 + w16[l];
+            }
+        }
+        int[] a = v[0], b = v[1], c = v[2], d = v[3], e = v[4], f = v[5], g = v[6], h = v[7];
+        for (int i = 0; i < 8; i++) {
+            final int[] vi = v[i];
+            for (int l = 0; l < lanes; l++) {
+                vi[l] = initial[i];
+            }
+        }
+        for (int t = 0; t < 64; t++) {
+            final int kt = k[t];
+            final int[] wt = w[t];
+            for (int l = 0; l < lanes; l++) {
+                final int ve = e[l], va = a[l], vb = b[l], vc = c[l];
+                final int s1 = Integer.rotateRight(ve, 6) ^ Integer.rotateRight(ve, 11) ^ Integer.rotateRight(ve, 25);
+                final int ch = (ve & f[l]) ^ (~ve & g[l]);
+                final int t1 = h[l] + s1 + ch + kt + wt[l];
+                final int s0 = Integer.rotateRight(va, 2) ^ Integer.rotateRight(va, 13) ^ Integer.rotateRight(va, 22);
+                final int maj = (va & vb) ^ (va & vc) ^ (vb & vc);
+                d[l] += t1;
+                h[l] = t1 + s0 + maj;
+            }
+            // New a replaces h and new e replaces d, the rest shift along
+            final int[] oldH = h;
+            h = g;
+            g = f;
+            f = e;
+            e = d;
+            d = c;
+            c = b;
+            b = a;
+            a = oldH;
+        }
+        // After 64 rounds the rotation is back to the initial arrays
+        for (int i = 0; i < 8; i++) {
+            final int[] si = state[i], vi = v[i];
+            for (int l = 0; l < lanes; l++) {
+                si[l] = initial[i] + vi[l];
+            }
+        }
+    }
+
+    /**
+     * First 8 bytes of hash in lane as big-endian long value.
+     */
+    final static long longValue(final int[][] state, final int lane) {
+        return ((long) state[0][lane] << 32) | (state[1][lane] & 0xFFFFFFFFL);
+    }
+}
@@ -3,45 +3,92 @@ package org.c19x.data;
 import android.content.Context;
 
 import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
 
 import org.c19x.data.database.ContactDAO;
 import org.c19x.data.database.ContactDatabase;
 import org.c19x.data.database.ContactEntity;
+import org.c19x.data.database.ExposureMinute;
 import org.c19x.data.type.BeaconCode;
+import org.c19x.data.type.CodeFilter;
 import org.c19x.data.type.Contact;
+import org.c19x.data.type.Day;
+import org.c19x.data.type.ExposureTimeline;
+import org.c19x.data.type.InfectedCodes;
 import org.c19x.data.type.RSSI;
 import org.c19x.data.type.Time;
+import org.c19x.data.type.TimeInterval;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.Deque;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class ConcreteDatabase implements Database {
     private final static String tag = ConcreteDatabase.class.getName();
-    private final ExecutorService operationQueue = Executors.newSingleThreadExecutor();
+    private final static String codeFilterFile = "C19X.CodeFilter";
+    private final static String infectedCodesSourceFile = "C19X.InfectedCodesSource";
+    /// Write-behind buffer commits contact inserts in one transaction per batch, once the batch
+    /// is full or the batch delay has elapsed, thus a crash loses at most the buffered contacts
+    private final static int batchSize = 64;
+    private final static TimeInterval batchDelay = new TimeInterval(10);
+    private final ScheduledExecutorService operationQueue = Executors.newSingleThreadScheduledExecutor();
+    private final ContactBatch contactBatch = new ContactBatch(operationQueue, batchSize, batchDelay, contacts, this::commit);
+    private final Context context;
     private final ContactDatabase contactDatabase;
+    private volatile CodeFilter codeFilter = null;
+    /// Source timestamp of infected codes held in database, null until read from file
+    private volatile Long infectedCodesSource = null;
 
     public ConcreteDatabase(Context context, Consumer<Deque<Contact>> callback) {
-        contactDatabase = Room.databaseBuilder(context, ContactDatabase.class, "C19X").build();
-        load(callback);
+        this.context = context;
+        contactDatabase = Room.databaseBuilder(context, ContactDatabase.class, "C19X")
+                .addMigrations(ContactDatabase.migration1To2, ContactDatabase.migration2To3)
+                .build();
+        load(callback, false);
     }
 
     @Override
     public void insert(Time time, BeaconCode code, RSSI rssi, Consumer<Deque<Contact>> callback) {
-        final Contact contact = new Contact(time, rssi, code);
-        final ContactEntity contactEntity = new ContactEntity();
-        contactEntity.time = time.value.getTime();
-        contactEntity.code = code.value;
-        contactEntity.rssi = rssi.value;
-        operationQueue.execute(() -> {
-            contactDatabase.contactDAO().insertAll(contactEntity);
-            contacts.add(contact);
-            Logger.debug(tag, "insert (time={},code={},rssi={})", time, code, rssi);
-            callback.accept(contacts);
-        });
+        contactBatch.add(new Contact(time, rssi, code), callback);
+        Logger.debug(tag, "insert (time={},code={},rssi={})", time, code, rssi);
+    }
+
+    @Override
+    public void flush() {
+        contactBatch.flush();
+    }
+
+    /**
+     * Commit batch of contact inserts in one transaction, on the operation queue.
+     */
+    private void commit(final List<Contact> contactList) {
+        final ContactEntity[] contactEntities = new ContactEntity[contactList.size()];
+        for (int i = 0; i < contactEntities.length; i++) {
+            final Contact contact = contactList.get(i);
+            contactEntities[i] = new ContactEntity();
+            contactEntities[i].time = contact.time.value.getTime();
+            contactEntities[i].code = contact.code.value;
+            contactEntities[i].rssi = contact.rssi.value;
+        }
+        final long[] rowIds = contactDatabase.contactDAO().insertAll(contactEntities);
+        final CodeFilter codeFilter = this.codeFilter;
+        if (codeFilter != null) {
+            for (int i = 0; i < contactEntities.length; i++) {
+                codeFilter.add(contactEntities[i].code);
+                codeFilter.watermark = Math.max(codeFilter.watermark, rowIds[i]);
+            }
+        }
+        contacts.addAll(contactList);
     }
 
     @Override
@@ -49,22 +96,96 @@ public class ConcreteDatabase implements Database {
         Logger.debug(tag, "remove (before={})", before);
         operationQueue.execute(() -> {
             final ContactDAO contactDAO = contactDatabase.contactDAO();
-            final List<ContactEntity> contactEntityList = contactDAO.getAll();
             final long beforeTime = before.value.getTime();
-            contactEntityList.forEach(contactEntity -> {
-                if (contactEntity.time <= beforeTime) {
-                    contactDAO.delete(contactEntity);
+            // Single statement using time index
+            final int count = contactDAO.deleteBefore(beforeTime);
+            // Contacts are in time order, thus expired contacts are at the front
+            for (Contact contact = contacts.peekFirst(); contact != null && contact.time.value.getTime() <= beforeTime; contact = contacts.peekFirst()) {
+                contacts.pollFirst();
+            }
+            // Code filter cannot remove codes, thus rebuild on every purge to drop expired codes
+            final CodeFilter codeFilter = this.codeFilter;
+            if (count > 0 && codeFilter == null) {
+                codeFilter(contactDAO.getAll(), true);
+            } else if (count > 0) {
+                codeFilter(contacts, codeFilter.watermark);
+            }
+            Logger.debug(tag, "remove successful (before={},count={})", before, count);
+            callback.accept(contacts);
+        });
+    }
+
+    @Override
+    public void contacts(int chunkSize, Consumer<List<Contact>> chunkConsumer) {
+        final ContactDAO contactDAO = contactDatabase.contactDAO();
+        // Keyset pagination on (time, uid) to avoid offset scans
+        long time = Long.MIN_VALUE;
+        int uid = Integer.MIN_VALUE;
+        List<ContactEntity> contactEntityList;
+        do {
+            contactEntityList = contactDAO.getAfter(time, uid, chunkSize);
+            if (contactEntityList.isEmpty()) {
+                break;
+            }
+            final ContactEntity last = contactEntityList.get(contactEntityList.size() - 1);
+            time = last.time;
+            uid = last.uid;
+            chunkConsumer.accept(contactEntityList.stream().map(e -> new Contact(e)).collect(Collectors.toList()));
+        } while (contactEntityList.size() == chunkSize);
+    }
+
+    @Override
+    public CodeFilter codeFilter() {
+        return codeFilter;
+    }
+
+    @Override
+    public List<Contact> contacts(long[] codes) {
+        return contactDatabase.contactDAO().getByCode(codes).stream().map(e -> new Contact(e)).collect(Collectors.toList());
+    }
+
+    @Override
+    public void infectedCodes(InfectedCodes infectedCodes) {
+        final SupportSQLiteDatabase database = contactDatabase.getOpenHelper().getWritableDatabase();
+        // Source is unknown until the table has been replaced
+        writeInfectedCodesSource(0);
+        contactDatabase.runInTransaction(() -> {
+            contactDatabase.contactDAO().deleteInfectedCodes();
+            // Bulk load from arrays with one compiled statement, no entity objects
+            try (final SupportSQLiteStatement statement = database.compileStatement("INSERT INTO infectedcodeentity (code, seed, day) VALUES (?, ?, ?)")) {
+                for (int i = 0; i < infectedCodes.size(); i++) {
+                    statement.bindLong(1, infectedCodes.codes[i]);
+                    statement.bindLong(2, infectedCodes.seed(i));
+                    statement.bindLong(3, infectedCodes.day(i));
+                    statement.executeInsert();
                 }
-            });
-            load(callback);
-            Logger.debug(tag, "remove successful (before={})", before);
+            } catch (IOException e) {
+                Logger.warn(tag, "Failed to close statement", e);
+            }
         });
+        writeInfectedCodesSource(infectedCodes.source);
+        Logger.debug(tag, "Loaded infected codes (count={},source={})", infectedCodes.size(), infectedCodes.source);
+    }
+
+    @Override
+    public long infectedCodesSource() {
+        if (infectedCodesSource == null) {
+            infectedCodesSource = readInfectedCodesSource();
+        }
+        return infectedCodesSource;
     }
 
-    private final void load(Consumer<Deque<Contact>> callback) {
+    @Override
+    public void exposure(long clockSkew, ExposureTimeline exposureTimeline) {
+        final List<ExposureMinute> exposureMinuteList = contactDatabase.contactDAO().exposure(exposureTimeline.time, clockSkew, Day.epoch, InfectedCodes.anyDay);
+        exposureMinuteList.forEach(exposureMinute -> exposureTimeline.add(exposureTimeline.time - exposureMinute.minute * TimeInterval.minute.value * 1000, exposureMinute.rssi));
+    }
+
+    private final void load(Consumer<Deque<Contact>> callback, final boolean rebuildCodeFilter) {
         Logger.debug(tag, "load");
         operationQueue.execute(() -> {
             final List<ContactEntity> contactEntityList = contactDatabase.contactDAO().getAll();
+            codeFilter(contactEntityList, rebuildCodeFilter);
             final List<Contact> contactList = contactEntityList.stream().map(e -> new Contact(e)).collect(Collectors.toList());
             contacts.clear();
             contacts.addAll(contactList);
@@ -72,4 +193,95 @@ public class ConcreteDatabase implements Database {
             callback.accept(contacts);
         });
     }
+
+    /**
+     * Update code filter for all database records, rebuilding after removal or when saturated,
+     * otherwise topping up persisted filter with records added since it was written.
+     */
+    private void codeFilter(List<ContactEntity> contactEntityList, boolean rebuild) {
+        CodeFilter codeFilter = (rebuild ? null : (this.codeFilter != null ? this.codeFilter : readCodeFilter()));
+        if (codeFilter == null || codeFilter.saturated() || codeFilter.capacity < contactEntityList.size()) {
+            // Sized with headroom for inserts until the next retention purge
+            codeFilter = new CodeFilter(Math.max(1024, contactEntityList.size() * 2));
+        }
+        final long watermark = codeFilter.watermark;
+        for (final ContactEntity contactEntity : contactEntityList) {
+            if (contactEntity.uid > watermark) {
+                codeFilter.add(contactEntity.code);
+                codeFilter.watermark = Math.max(codeFilter.watermark, contactEntity.uid);
+            }
+        }
+        this.codeFilter = codeFilter;
+        writeCodeFilter(codeFilter);
+        Logger.debug(tag, "Code filter updated (filter={})", codeFilter);
+    }
+
+    /**
+     * Rebuild code filter from contacts held in memory, which mirror the database records as
+     * loaded, committed and removed, thus avoiding a scan of the table. No records were added,
+     * thus the watermark is unchanged.
+     */
+    private void codeFilter(Deque<Contact> contacts, long watermark) {
+        final CodeFilter codeFilter = new CodeFilter(Math.max(1024, contacts.size() * 2));
+        for (final Contact contact : contacts) {
+            codeFilter.add(contact.code.value);
+        }
+        codeFilter.watermark = watermark;
+        this.codeFilter = codeFilter;
+        writeCodeFilter(codeFilter);
+        Logger.debug(tag, "Code filter rebuilt (filter={})", codeFilter);
+    }
+
+    private CodeFilter readCodeFilter() {
+        try {
+            final FileInputStream fileInputStream = context.openFileInput(codeFilterFile);
+            final CodeFilter codeFilter = CodeFilter.read(fileInputStream);
+            fileInputStream.close();
+            return codeFilter;
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (Throwable e) {
+            Logger.warn(tag, "Read code filter failed", e);
+            context.deleteFile(codeFilterFile);
+            return null;
+        }
+    }
+
+    private long readInfectedCodesSource() {
+        try {
+            final DataInputStream dataInputStream = new DataInputStream(context.openFileInput(infectedCodesSourceFile));
+            final long source = dataInputStream.readLong();
+            dataInputStream.close();
+            return source;
+        } catch (FileNotFoundException e) {
+            return 0;
+        } catch (Throwable e) {
+            Logger.warn(tag, "Read infected codes source failed", e);
+            context.deleteFile(infectedCodesSourceFile);
+            return 0;
+        }
+    }
+
+    private void writeInfectedCodesSource(long source) {
+        infectedCodesSource = source;
+        try {
+            final DataOutputStream dataOutputStream = new DataOutputStream(context.openFileOutput(infectedCodesSourceFile, Context.MODE_PRIVATE));
+            dataOutputStream.writeLong(source);
+            dataOutputStream.close();
+        } catch (Throwable e) {
+            Logger.warn(tag, "Write infected codes source failed", e);
+            context.deleteFile(infectedCodesSourceFile);
+        }
+    }
+
+    private void writeCodeFilter(CodeFilter codeFilter) {
+        try {
+            final FileOutputStream fileOutputStream = context.openFileOutput(codeFilterFile, Context.MODE_PRIVATE);
+            codeFilter.write(fileOutputStream);
+            fileOutputStream.close();
+        } catch (Throwable e) {
+            Logger.warn(tag, "Write code filter failed", e);
+            context.deleteFile(codeFilterFile);
+        }
+    }
 }
@@ -0,0 +1,113 @@
+package org.c19x.data;
+
+import org.c19x.data.type.Contact;
+import org.c19x.data.type.TimeInterval;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind buffer for contact inserts, committing buffered contacts in one transaction per
+ * batch once the batch is full, the batch delay has elapsed, or on flush. Contacts stay buffered
+ * until their commit succeeds, and a failed commit is retried after the batch delay.
+ */
+public class ContactBatch {
+    private final static String tag = ContactBatch.class.getName();
+    private final ScheduledExecutorService operationQueue;
+    private final int batchSize;
+    private final TimeInterval batchDelay;
+    private final Commit commit;
+    /// Contacts passed to callbacks after each commit
+    private final Deque<Contact> contacts;
+    private final List<Contact> batchContacts;
+    /// Distinct callbacks of buffered inserts, each called once per batch
+    private final Set<Consumer<Deque<Contact>>> batchCallbacks = new LinkedHashSet<>();
+    private ScheduledFuture<?> batchCommit = null;
+
+    /**
+     * Commit contacts in one transaction, throwing on failure.
+     */
+    public interface Commit {
+        void commit(List<Contact> contacts) throws Exception;
+    }
+
+    public ContactBatch(ScheduledExecutorService operationQueue, int batchSize, TimeInterval batchDelay, Deque<Contact> contacts, Commit commit) {
+        this.operationQueue = operationQueue;
+        this.batchSize = batchSize;
+        this.batchDelay = batchDelay;
+        this.contacts = contacts;
+        this.commit = commit;
+        this.batchContacts = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * Buffer contact for commit, and callback once its batch has been committed.
+     */
+    public void add(Contact contact, Consumer<Deque<Contact>> callback) {
+        synchronized (batchContacts) {
+            batchContacts.add(contact);
+            batchCallbacks.add(callback);
+            if (batchContacts.size() == batchSize) {
+                operationQueue.execute(this::commit);
+            } else if (batchCommit == null) {
+                batchCommit = operationQueue.schedule(this::commit, batchDelay.value, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    /**
+     * Commit buffered contacts now.
+     */
+    public void flush() {
+        operationQueue.execute(this::commit);
+    }
+
+    /**
+     * Commit buffered contacts in one transaction, then call back once per batch. Contacts are
+     * only removed from the buffer once committed. This must run on the operation queue.
+     */
+    private void commit() {
+        final List<Contact> contactList;
+        final List<Consumer<Deque<Contact>>> callbacks;
+        synchronized (batchContacts) {
+            if (batchCommit != null) {
+                batchCommit.cancel(false);
+                batchCommit = null;
+            }
+            if (batchContacts.isEmpty()) {
+                return;
+            }
+            contactList = new ArrayList<>(batchContacts);
+            callbacks = new ArrayList<>(batchCallbacks);
+        }
+        try {
+            commit.commit(contactList);
+        } catch (Throwable e) {
+            Logger.warn(tag, "Commit failed, retrying after batch delay (count={})", contactList.size(), e);
+            synchronized (batchContacts) {
+                if (batchCommit == null) {
+                    batchCommit = operationQueue.schedule(this::commit, batchDelay.value, TimeUnit.SECONDS);
+                }
+            }
+            return;
+        }
+        synchronized (batchContacts) {
+            // Contacts buffered during commit remain, along with all callbacks if any remain
+            batchContacts.subList(0, contactList.size()).clear();
+            if (batchContacts.isEmpty()) {
+                batchCallbacks.clear();
+            } else if (batchContacts.size() >= batchSize) {
+                operationQueue.execute(this::commit);
+            }
+        }
+        Logger.debug(tag, "Committed contacts (count={},callbacks={})", contactList.size(), callbacks.size());
+        callbacks.forEach(callback -> callback.accept(contacts));
+    }
+}
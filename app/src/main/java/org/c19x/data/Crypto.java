@@ -0,0 +1,144 @@
+package org.c19x.data;
+
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+/**
+ * Shared crypto service for encrypted settings and messages. The master key is resolved from the
+ * key store once per process, cipher instances are kept per thread and transformation for reuse,
+ * and one-shot operations write into a reusable per-thread buffer instead of going through streams.
+ */
+public class Crypto {
+    private final static String tag = Crypto.class.getName();
+    private final static String masterKeyAlias = "c19xMasterKey";
+    private static volatile SecretKey masterKey = null;
+    private final static ThreadLocal<Map<String, Cipher>> ciphers = new ThreadLocal<Map<String, Cipher>>() {
+        @Override
+        protected Map<String, Cipher> initialValue() {
+            return new HashMap<>();
+        }
+    };
+    private final static ThreadLocal<Output> outputs = new ThreadLocal<Output>() {
+        @Override
+        protected Output initialValue() {
+            return new Output();
+        }
+    };
+
+    /**
+     * Output of one-shot cipher operation, reused by the calling thread, thus only valid until
+     * its next operation.
+     */
+    public final static class Output {
+        public byte[] value = new byte[256];
+        public int length = 0;
+
+        /**
+         * Zero the used range of the buffer, to be called once decrypted output has been copied,
+         * so that clear text does not remain on the heap.
+         */
+        public void clear() {
+            Arrays.fill(value, 0, length, (byte) 0);
+            length = 0;
+        }
+    }
+
+    /**
+     * Get cipher for transformation, reused by the calling thread. Cipher must be initialised
+     * before each use.
+     */
+    public final static Cipher cipher(final String transformation) throws GeneralSecurityException {
+        final Map<String, Cipher> map = ciphers.get();
+        Cipher cipher = map.get(transformation);
+        if (cipher == null) {
+            cipher = Cipher.getInstance(transformation);
+            map.put(transformation, cipher);
+        }
+        return cipher;
+    }
+
+    /**
+     * Encrypt or decrypt input in one shot with initialised cipher.
+     */
+    public final static Output doFinal(final Cipher cipher, final byte[] input) throws GeneralSecurityException {
+        final Output output = outputs.get();
+        final int size = cipher.getOutputSize(input.length);
+        if (output.value.length < size) {
+            output.value = new byte[Math.max(size, output.value.length * 2)];
+        }
+        output.length = cipher.doFinal(input, 0, input.length, output.value, 0);
+        return output;
+    }
+
+    /**
+     * Get master key for encrypted app data, creating it on first use. The key is resolved from
+     * the key store once and cached for the process.
+     *
+     * @return
+     */
+    public final static SecretKey masterKey() {
+        final SecretKey cached = masterKey;
+        if (cached != null) {
+            return cached;
+        }
+        synchronized (Crypto.class) {
+            if (masterKey == null) {
+                masterKey = loadMasterKey();
+            }
+            return masterKey;
+        }
+    }
+
+    private final static SecretKey loadMasterKey() {
+        try {
+            final KeyStore keyStore = KeyStore.getInstance("AndroidKeyStore");
+            keyStore.load(null);
+            if (!keyStore.containsAlias(masterKeyAlias)) {
+                Logger.debug(tag, "Generating master key");
+                final KeyGenerator keyGenerator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, "AndroidKeyStore");
+                final KeyGenParameterSpec keyGenParameterSpec = new KeyGenParameterSpec.Builder(masterKeyAlias,
+                        KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                        .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                        .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                        .build();
+                keyGenerator.init(keyGenParameterSpec);
+                final SecretKey masterKey = keyGenerator.generateKey();
+                return masterKey;
+            } else {
+                Logger.debug(tag, "Getting existing master key");
+                final SecretKey masterKey = ((KeyStore.SecretKeyEntry) keyStore.getEntry(masterKeyAlias, null)).getSecretKey();
+                return masterKey;
+            }
+        } catch (Throwable e) {
+            Logger.error(tag, "Failed to get or create master key", e);
+            return null;
+        }
+    }
+
+    /**
+     * Remove master key from key store and cache.
+     */
+    public final static synchronized void removeMasterKey() {
+        masterKey = null;
+        try {
+            final KeyStore keyStore = KeyStore.getInstance("AndroidKeyStore");
+            keyStore.load(null);
+            if (keyStore.containsAlias(masterKeyAlias)) {
+                keyStore.deleteEntry(masterKeyAlias);
+                Logger.debug(tag, "Removed existing master key");
+            }
+        } catch (Throwable e) {
+            Logger.error(tag, "Failed to remove master key", e);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.c19x.data;
+
+import org.c19x.data.type.TimeInterval;
+
+import java.security.SecureRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared deterministic random bit generator for IVs and beacon code selection. Each thread draws
+ * from its own securely seeded SHA1 PRNG through a small buffer, and fresh seed material is
+ * gathered in the background and mixed into every generator before its next use, so callers
+ * never block on entropy or pay for constructing and warming up a generator.
+ */
+public class DRBG {
+    private final static String tag = DRBG.class.getName();
+    /// Random bytes buffered per thread
+    private final static int bufferSize = 256;
+    /// NIST SP800-90A suggests 440 bits for SHA1 seed
+    private final static int seedSize = 55;
+    private final static TimeInterval reseedInterval = TimeInterval.hour;
+    /// Non-blocking source for initial seeds of per-thread generators
+    private final static SecureRandom seedSource = new SecureRandom();
+    /// Latest background seed material and its generation, generators reseed when generation changes
+    private static volatile byte[] reseed = null;
+    private static volatile long reseedGeneration = 0;
+    private final static ThreadLocal<Generator> generator = new ThreadLocal<Generator>() {
+        @Override
+        protected Generator initialValue() {
+            return new Generator();
+        }
+    };
+    private final static ScheduledExecutorService reseeder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, tag);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        reseeder.scheduleWithFixedDelay(DRBG::reseed, 0, reseedInterval.value, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Per-thread generator and output buffer.
+     */
+    private final static class Generator {
+        private final SecureRandom secureRandom;
+        private final byte[] buffer = new byte[bufferSize];
+        private final byte[] word = new byte[4];
+        private int position = bufferSize;
+        private long generation = -1;
+
+        private Generator() {
+            SecureRandom secureRandom;
+            try {
+                // Get an instance of the SUN SHA1 PRNG
+                secureRandom = SecureRandom.getInstance("SHA1PRNG");
+            } catch (Throwable e) {
+                Logger.warn(tag, "SHA1 PRNG unavailable, using default secure random", e);
+                secureRandom = new SecureRandom();
+            }
+            // Seed before first use, otherwise the generator seeds itself and may block
+            final byte[] seed = new byte[seedSize];
+            seedSource.nextBytes(seed);
+            secureRandom.setSeed(seed);
+            this.secureRandom = secureRandom;
+        }
+
+        private void nextBytes(final byte[] bytes) {
+            final long current = reseedGeneration;
+            if (generation != current) {
+                final byte[] seed = reseed;
+                if (seed != null) {
+                    // Supplements rather than replaces existing seed
+                    secureRandom.setSeed(seed);
+                }
+                generation = current;
+                position = bufferSize;
+            }
+            for (int i = 0; i < bytes.length; ) {
+                if (position == bufferSize) {
+                    secureRandom.nextBytes(buffer);
+                    position = 0;
+                }
+                final int count = Math.min(bytes.length - i, bufferSize - position);
+                System.arraycopy(buffer, position, bytes, i, count);
+                // Erase output once used
+                for (int j = position; j < position + count; j++) {
+                    buffer[j] = 0;
+                }
+                position += count;
+                i += count;
+            }
+        }
+
+        /**
+         * Random non-negative 31-bit value.
+         */
+        private int next31() {
+            nextBytes(word);
+            return ((word[0] & 0x7F) << 24) | ((word[1] & 0xFF) << 16) | ((word[2] & 0xFF) << 8) | (word[3] & 0xFF);
+        }
+    }
+
+    /**
+     * Gather fresh seed material, this may block on entropy thus it only runs in the background.
+     */
+    private final static void reseed() {
+        try {
+            reseed = seedSource.generateSeed(seedSize);
+            reseedGeneration++;
+            Logger.debug(tag, "Reseeded (generation={})", reseedGeneration);
+        } catch (Throwable e) {
+            Logger.warn(tag, "Failed to reseed", e);
+        }
+    }
+
+    /**
+     * Fill bytes with random bytes.
+     */
+    public final static void nextBytes(final byte[] bytes) {
+        generator.get().nextBytes(bytes);
+    }
+
+    /**
+     * Uniformly distributed random int in [0, bound).
+     */
+    public final static int nextInt(final int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        final Generator generator = DRBG.generator.get();
+        // Rejection sampling of 31-bit values, as java.util.Random
+        final int mask = bound - 1;
+        int r = generator.next31();
+        if ((bound & mask) == 0) {
+            return (int) ((bound * (long) r) >> 31);
+        }
+        int u = r;
+        while (u - (r = u % bound) + mask < 0) {
+            u = generator.next31();
+        }
+        return r;
+    }
+}
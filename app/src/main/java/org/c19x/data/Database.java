@@ -1,11 +1,15 @@
 package org.c19x.data;
 
 import org.c19x.data.type.BeaconCode;
+import org.c19x.data.type.CodeFilter;
 import org.c19x.data.type.Contact;
+import org.c19x.data.type.ExposureTimeline;
+import org.c19x.data.type.InfectedCodes;
 import org.c19x.data.type.RSSI;
 import org.c19x.data.type.Time;
 
 import java.util.Deque;
+import java.util.List;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.function.Consumer;
 
@@ -17,8 +21,48 @@ public interface Database {
      */
     void insert(Time time, BeaconCode code, RSSI rssi, Consumer<Deque<Contact>> callback);
 
+    /**
+     * Commit buffered contact records now, e.g. before the app may be stopped.
+     */
+    void flush();
+
     /**
      * Remove all database records before given date.
      */
     void remove(Time before, Consumer<Deque<Contact>> callback);
+
+    /**
+     * Read all database records in time order, in chunks of up to chunkSize records, on the
+     * calling thread. Memory use is bounded by chunk size regardless of the number of records.
+     */
+    void contacts(int chunkSize, Consumer<List<Contact>> chunkConsumer);
+
+    /**
+     * Get probabilistic filter of all beacon codes in database, for skipping codes that are
+     * definitely not in database, or null if not available.
+     */
+    CodeFilter codeFilter();
+
+    /**
+     * Read database records with any of the given beacon codes, on the calling thread.
+     */
+    List<Contact> contacts(long[] codes);
+
+    /**
+     * Replace infected codes held in database for matching contacts in database.
+     */
+    void infectedCodes(InfectedCodes infectedCodes);
+
+    /**
+     * Get timestamp of source infection data of infected codes held in database, which persists
+     * across restarts, or 0 if not known.
+     */
+    long infectedCodesSource();
+
+    /**
+     * Match contacts in database against infected codes held in database, on the calling thread,
+     * and add the nearest encounter for each minute to the exposure timeline. Codes are matched
+     * to contacts on the day of their seed, plus or minus clock skew in millis.
+     */
+    void exposure(long clockSkew, ExposureTimeline exposureTimeline);
 }
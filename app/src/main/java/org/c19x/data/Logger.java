@@ -121,7 +121,7 @@ public class Logger {
         }
     }
 
-    private final static String render(final String message, final Object... values) {
+    final static String render(final String message, final Object... values) {
         if (values.length == 0) {
             return message;
         } else {
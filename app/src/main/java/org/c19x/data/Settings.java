@@ -2,15 +2,16 @@ package org.c19x.data;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.security.keystore.KeyGenParameterSpec;
-import android.security.keystore.KeyProperties;
 import android.util.Base64;
 
 import org.c19x.data.primitive.Triple;
 import org.c19x.data.primitive.Tuple;
 import org.c19x.data.type.Advice;
+import org.c19x.data.type.AnalysisCache;
 import org.c19x.data.type.ContactPattern;
+import org.c19x.data.type.DayCodeCheckpoints;
 import org.c19x.data.type.ExposurePeriod;
+import org.c19x.data.type.InfectedCodes;
 import org.c19x.data.type.InfectionData;
 import org.c19x.data.type.Message;
 import org.c19x.data.type.RSSI;
@@ -26,16 +27,12 @@ import org.c19x.data.type.Time;
 import org.c19x.data.type.TimeInterval;
 import org.c19x.data.type.TimeMillis;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.security.KeyStore;
 
 import javax.crypto.Cipher;
-import javax.crypto.CipherInputStream;
-import javax.crypto.CipherOutputStream;
-import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 
@@ -50,6 +47,7 @@ public class Settings {
     private final static String keyRegistrationState = "Registration.State";
     private final static String keyRegistrationSerialNumber = "Registration.SerialNumber";
     private final static String keyRegistrationSharedSecret = "Registration.SharedSecret";
+    private final static String keyRegistrationDayCodes = "Registration.DayCodes";
     private final static String keySettings = "Settings";
     private final static String keySettingsTimeDelta = "Settings.TimeDelta";
     private final static String keySettingsServer = "Settings.Server";
@@ -58,6 +56,8 @@ public class Settings {
     private final static String keySettingsExposure = "Settings.Exposure";
     private final static String keySettingsDefaultAdvice = "Settings.DefaultAdvice";
     private final static String keySettingsInfectionData = "Settings.InfectionData";
+    private final static String keySettingsInfectedCodes = "Settings.InfectedCodes";
+    private final static String keySettingsAnalysisCache = "Settings.AnalysisCache";
     private final static String keyTimestampTime = "Timestamp.Time";
     private final static String keyTimestampStatus = "Timestamp.Status";
     private final static String keyTimestampStatusRemote = "Timestamp.Status.Remote";
@@ -69,6 +69,8 @@ public class Settings {
 
     private final Context context;
     private final SharedPreferences sharedPreferences;
+    private volatile InfectedCodes infectedCodes = null;
+    private volatile AnalysisCache analysisCache = null;
 
 
     public Settings(Context context) {
@@ -90,6 +92,7 @@ public class Settings {
         remove(keyRegistrationState);
         remove(keyRegistrationSerialNumber);
         remove(keyRegistrationSharedSecret);
+        remove(keyRegistrationDayCodes);
         remove(keySettings);
         remove(keySettingsTimeDelta);
         remove(keySettingsServer);
@@ -106,7 +109,11 @@ public class Settings {
         remove(keyTimestampSettings);
         remove(keyTimestampInfectionData);
         remove(context, keySettingsInfectionData);
-        removeMasterKey();
+        remove(context, keySettingsInfectedCodes);
+        infectedCodes = null;
+        remove(context, keySettingsAnalysisCache);
+        analysisCache = null;
+        Crypto.removeMasterKey();
     }
 
     public void set(ServerSettings setTo) {
@@ -188,6 +195,30 @@ public class Settings {
         return registration;
     }
 
+    /**
+     * Set day code checkpoints derived from registration shared secret.
+     */
+    public void dayCodeCheckpoints(DayCodeCheckpoints setTo) {
+        setEncrypted(Base64.encodeToString(setTo.encode(), Base64.DEFAULT), keyRegistrationDayCodes);
+    }
+
+    /**
+     * Get day code checkpoints, or null if not available or invalid.
+     */
+    public DayCodeCheckpoints dayCodeCheckpoints() {
+        final String dayCodesString = getEncrypted(keyRegistrationDayCodes);
+        if (dayCodesString == null) {
+            return null;
+        }
+        try {
+            return DayCodeCheckpoints.decode(Base64.decode(dayCodesString, Base64.DEFAULT));
+        } catch (Throwable e) {
+            Logger.warn(tag, "Read day code checkpoints failed", e);
+            remove(keyRegistrationDayCodes);
+            return null;
+        }
+    }
+
     /**
      * Set time delta between device and server.
      */
@@ -403,7 +434,10 @@ public class Settings {
     /**
      * Set infection data (stored in application support directory in clear text, as its public data)
      */
-    public void infectionData(InfectionData setTo) {
+    public synchronized void infectionData(InfectionData setTo) {
+        // Infected codes must be regenerated for new infection data
+        remove(context, keySettingsInfectedCodes);
+        infectedCodes = null;
         write(context, keySettingsInfectionData, setTo.json);
         final Time timestamp = new Time();
         set(Long.toString(timestamp.value.getTime()), keyTimestampInfectionData);
@@ -412,7 +446,7 @@ public class Settings {
     /**
      * Set infection data (stored in application support directory in clear text, as its public data)
      */
-    public Tuple<InfectionData, Time> infectionData() {
+    public synchronized Tuple<InfectionData, Time> infectionData() {
         final String infectionDataString = read(context, keySettingsInfectionData);
         final String timestampString = get(keyTimestampInfectionData);
         if (infectionDataString == null || timestampString == null) {
@@ -423,6 +457,97 @@ public class Settings {
         return new Tuple<>(infectionData, timestamp);
     }
 
+    /**
+     * Get infection data timestamp, without reading infection data.
+     */
+    public Time infectionDataTimestamp() {
+        final String timestampString = get(keyTimestampInfectionData);
+        return (timestampString == null ? Time.distantPast : new Time(Long.parseLong(timestampString)));
+    }
+
+    /**
+     * Set cached result of last analysis (stored in binary format)
+     */
+    public void analysisCache(AnalysisCache setTo) {
+        try {
+            final FileOutputStream fileOutputStream = context.openFileOutput(keySettingsAnalysisCache, Context.MODE_PRIVATE);
+            setTo.write(fileOutputStream);
+            fileOutputStream.close();
+        } catch (Throwable e) {
+            Logger.warn(tag, "Write analysis cache failed", e);
+            remove(context, keySettingsAnalysisCache);
+        }
+        analysisCache = setTo;
+    }
+
+    /**
+     * Get cached result of last analysis, or null if not available.
+     */
+    public AnalysisCache analysisCache() {
+        if (analysisCache != null) {
+            return analysisCache;
+        }
+        try {
+            final FileInputStream fileInputStream = context.openFileInput(keySettingsAnalysisCache);
+            analysisCache = AnalysisCache.read(fileInputStream);
+            fileInputStream.close();
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (Throwable e) {
+            Logger.warn(tag, "Read analysis cache failed", e);
+            remove(context, keySettingsAnalysisCache);
+        }
+        return analysisCache;
+    }
+
+    /**
+     * Set infected codes regenerated from current infection data (stored next to infection data in binary format).
+     * Codes regenerated from other infection data are discarded, e.g. when newer data has been stored since.
+     */
+    public synchronized void infectedCodes(InfectedCodes setTo) {
+        final Time infectionDataTimestamp = infectionDataTimestamp();
+        if (!setTo.from(infectionDataTimestamp)) {
+            Logger.debug(tag, "Discarded infected codes for other infection data (source={},timestamp={})", setTo.source, infectionDataTimestamp);
+            return;
+        }
+        try {
+            final FileOutputStream fileOutputStream = context.openFileOutput(keySettingsInfectedCodes, Context.MODE_PRIVATE);
+            setTo.write(fileOutputStream);
+            fileOutputStream.close();
+        } catch (Throwable e) {
+            Logger.warn(tag, "Write infected codes failed", e);
+            remove(context, keySettingsInfectedCodes);
+        }
+        infectedCodes = setTo;
+    }
+
+    /**
+     * Get infected codes regenerated from current infection data, or null if not available.
+     */
+    public synchronized InfectedCodes infectedCodes() {
+        final Time infectionDataTimestamp = infectionDataTimestamp();
+        if (infectedCodes != null) {
+            return (infectedCodes.from(infectionDataTimestamp) ? infectedCodes : null);
+        }
+        try {
+            final FileInputStream fileInputStream = context.openFileInput(keySettingsInfectedCodes);
+            final InfectedCodes fileInfectedCodes = InfectedCodes.read(fileInputStream);
+            fileInputStream.close();
+            if (!fileInfectedCodes.from(infectionDataTimestamp)) {
+                Logger.debug(tag, "Discarded stored infected codes for other infection data (source={},timestamp={})", fileInfectedCodes.source, infectionDataTimestamp);
+                remove(context, keySettingsInfectedCodes);
+                return null;
+            }
+            infectedCodes = fileInfectedCodes;
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (Throwable e) {
+            Logger.warn(tag, "Read infected codes failed", e);
+            remove(context, keySettingsInfectedCodes);
+        }
+        return infectedCodes;
+    }
+
     /**
      * Get proximity for disease transmission.
      */
@@ -468,11 +593,11 @@ public class Settings {
         if (encrypted == null) {
             return null;
         }
-        return decrypt(getMasterKey(), encrypted);
+        return decrypt(Crypto.masterKey(), encrypted);
     }
 
     private void setEncrypted(final String value, final String forKey) {
-        final String encrypted = encrypt(getMasterKey(), value);
+        final String encrypted = encrypt(Crypto.masterKey(), value);
         if (encrypted == null) {
             return;
         }
@@ -481,16 +606,11 @@ public class Settings {
 
     private final static String encrypt(final SecretKey masterKey, final String value) {
         try {
-            final Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            final Cipher cipher = Crypto.cipher("AES/GCM/NoPadding");
             cipher.init(Cipher.ENCRYPT_MODE, masterKey);
             final byte[] iv = cipher.getIV();
-            final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            final CipherOutputStream cipherOutputStream = new CipherOutputStream(byteArrayOutputStream, cipher);
-            cipherOutputStream.write(value.getBytes());
-            cipherOutputStream.flush();
-            cipherOutputStream.close();
-            final byte[] data = byteArrayOutputStream.toByteArray();
-            return Base64.encodeToString(iv, Base64.DEFAULT) + "\t" + Base64.encodeToString(data, Base64.DEFAULT);
+            final Crypto.Output data = Crypto.doFinal(cipher, value.getBytes());
+            return Base64.encodeToString(iv, Base64.DEFAULT) + "\t" + Base64.encodeToString(data.value, 0, data.length, Base64.DEFAULT);
         } catch (Throwable e) {
             Logger.warn(tag, "Encrypt failed", e);
             return null;
@@ -502,75 +622,19 @@ public class Settings {
             final String[] fields = value.split("\t", 2);
             final byte[] iv = Base64.decode(fields[0], Base64.DEFAULT);
             final byte[] data = Base64.decode(fields[1], Base64.DEFAULT);
-            final ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data);
-            final Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            final Cipher cipher = Crypto.cipher("AES/GCM/NoPadding");
             final GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(128, iv);
             cipher.init(Cipher.DECRYPT_MODE, masterKey, gcmParameterSpec);
-            final CipherInputStream cipherInputStream = new CipherInputStream(byteArrayInputStream, cipher);
-            final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            int bytesRead;
-            final byte[] buffer = new byte[1024];
-            while ((bytesRead = cipherInputStream.read(buffer, 0, buffer.length)) != -1) {
-                byteArrayOutputStream.write(buffer, 0, bytesRead);
-            }
-            byteArrayOutputStream.flush();
-            final byte[] byteArray = byteArrayOutputStream.toByteArray();
-            byteArrayOutputStream.close();
-            cipherInputStream.close();
-            byteArrayInputStream.close();
-            return new String(byteArray);
+            final Crypto.Output clearText = Crypto.doFinal(cipher, data);
+            final String string = new String(clearText.value, 0, clearText.length);
+            clearText.clear();
+            return string;
         } catch (Throwable e) {
             Logger.warn(tag, "Decrypt failed", e);
             return null;
         }
     }
 
-    /**
-     * Get master key for encrypted app data.
-     *
-     * @return
-     */
-    private final static synchronized SecretKey getMasterKey() {
-        try {
-            final String alias = "c19xMasterKey";
-            final KeyStore keyStore = KeyStore.getInstance("AndroidKeyStore");
-            keyStore.load(null);
-            if (!keyStore.containsAlias(alias)) {
-                Logger.debug(tag, "Generating master key");
-                final KeyGenerator keyGenerator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, "AndroidKeyStore");
-                final KeyGenParameterSpec keyGenParameterSpec = new KeyGenParameterSpec.Builder(alias,
-                        KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
-                        .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
-                        .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
-                        .build();
-                keyGenerator.init(keyGenParameterSpec);
-                final SecretKey masterKey = keyGenerator.generateKey();
-                return masterKey;
-            } else {
-                Logger.debug(tag, "Getting existing master key");
-                final SecretKey masterKey = ((KeyStore.SecretKeyEntry) keyStore.getEntry(alias, null)).getSecretKey();
-                return masterKey;
-            }
-        } catch (Throwable e) {
-            Logger.error(tag, "Failed to get or create master key", e);
-            return null;
-        }
-    }
-
-    private final static synchronized void removeMasterKey() {
-        try {
-            final String alias = "c19xMasterKey";
-            final KeyStore keyStore = KeyStore.getInstance("AndroidKeyStore");
-            keyStore.load(null);
-            if (keyStore.containsAlias(alias)) {
-                keyStore.deleteEntry(alias);
-                Logger.debug(tag, "Removed existing master key");
-            }
-        } catch (Throwable e) {
-            Logger.error(tag, "Failed to remove master key", e);
-        }
-    }
-
     private final static boolean write(final Context context, final String filename, final String value) {
         try {
             final FileOutputStream fileOutputStream = context.openFileOutput(filename, Context.MODE_PRIVATE);
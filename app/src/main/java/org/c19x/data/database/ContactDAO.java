@@ -1,7 +1,6 @@
 package org.c19x.data.database;
 
 import androidx.room.Dao;
-import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.Query;
 
@@ -10,12 +9,33 @@ import java.util.List;
 @Dao
 public interface ContactDAO {
 
-    @Query("SELECT * FROM contactentity")
+    @Query("SELECT * FROM contactentity ORDER BY time, uid")
     List<ContactEntity> getAll();
 
+    @Query("SELECT * FROM contactentity WHERE time > :time OR (time = :time AND uid > :uid) ORDER BY time, uid LIMIT :limit")
+    List<ContactEntity> getAfter(long time, int uid, int limit);
+
+    @Query("SELECT * FROM contactentity WHERE code IN (:codes)")
+    List<ContactEntity> getByCode(long[] codes);
+
     @Insert
-    void insertAll(ContactEntity... contactEntities);
+    long[] insertAll(ContactEntity... contactEntities);
+
+    @Query("DELETE FROM contactentity WHERE time <= :before")
+    int deleteBefore(long before);
+
+    @Query("DELETE FROM infectedcodeentity")
+    void deleteInfectedCodes();
 
-    @Delete
-    void delete(ContactEntity contactEntity);
+    /**
+     * Join contacts with infected codes, matching codes to the day of their seed, allowing for
+     * clock skew, and get the nearest encounter for each minute before now.
+     */
+    @Query("SELECT (:now - contactentity.time) / 60000 AS minute, MAX(contactentity.rssi) AS rssi" +
+            " FROM contactentity INNER JOIN infectedcodeentity ON contactentity.code = infectedcodeentity.code" +
+            " WHERE infectedcodeentity.day = :anyDay" +
+            " OR infectedcodeentity.day BETWEEN (contactentity.time - :clockSkew - :epoch) / 86400000" +
+            " AND (contactentity.time + :clockSkew - :epoch) / 86400000" +
+            " GROUP BY minute")
+    List<ExposureMinute> exposure(long now, long clockSkew, long epoch, int anyDay);
 }
@@ -1,9 +1,30 @@
 package org.c19x.data.database;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
-@Database(entities = {ContactEntity.class}, version = 1, exportSchema = false)
+@Database(entities = {ContactEntity.class, InfectedCodeEntity.class}, version = 3, exportSchema = false)
 public abstract class ContactDatabase extends RoomDatabase {
+    /// Time index for reading contacts in time order
+    public final static Migration migration1To2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_ContactEntity_time` ON `ContactEntity` (`time`)");
+        }
+    };
+
+    /// Code index for joining contacts with infected codes, and infected codes table
+    public final static Migration migration2To3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_ContactEntity_code` ON `ContactEntity` (`code`)");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `InfectedCodeEntity` (`uid` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `code` INTEGER NOT NULL, `seed` INTEGER NOT NULL, `day` INTEGER NOT NULL)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_InfectedCodeEntity_code` ON `InfectedCodeEntity` (`code`)");
+        }
+    };
+
     public abstract ContactDAO contactDAO();
-}
\ No newline at end of file
+}
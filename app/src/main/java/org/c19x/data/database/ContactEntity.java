@@ -2,11 +2,12 @@ package org.c19x.data.database;
 
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 import org.c19x.data.type.Time;
 
-@Entity
+@Entity(indices = {@Index("time"), @Index("code")})
 public class ContactEntity {
     @PrimaryKey(autoGenerate = true)
     public int uid;
@@ -0,0 +1,22 @@
+package org.c19x.data.database;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * Nearest encounter with infected codes in a minute, counting minutes back from analysis time.
+ */
+public class ExposureMinute {
+    @ColumnInfo(name = "minute")
+    public long minute;
+
+    @ColumnInfo(name = "rssi")
+    public int rssi;
+
+    @Override
+    public String toString() {
+        return "ExposureMinute{" +
+                "minute=" + minute +
+                ", rssi=" + rssi +
+                '}';
+    }
+}
@@ -0,0 +1,30 @@
+package org.c19x.data.database;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+@Entity(indices = {@Index("code")})
+public class InfectedCodeEntity {
+    @PrimaryKey(autoGenerate = true)
+    public int uid;
+
+    @ColumnInfo(name = "code")
+    public long code;
+
+    @ColumnInfo(name = "seed")
+    public long seed;
+
+    @ColumnInfo(name = "day")
+    public int day;
+
+    @Override
+    public String toString() {
+        return "InfectedCodeEntity{" +
+                "code=" + code +
+                ", seed=" + seed +
+                ", day=" + day +
+                '}';
+    }
+}
@@ -0,0 +1,85 @@
+package org.c19x.data.type;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Exposure timeline from the last analysis, with a fingerprint of the analysis inputs, for
+ * reusing the result when the inputs are unchanged, e.g. after restart. Advice and status are
+ * cheap to derive from the timeline, thus only the timeline is held.
+ */
+public class AnalysisCache {
+    private final static int magic = 0x43313941;
+    private final static int version = 1;
+    public final long[] fingerprint;
+    public final ExposureTimeline exposureTimeline;
+
+    public AnalysisCache(long[] fingerprint, ExposureTimeline exposureTimeline) {
+        this.fingerprint = fingerprint;
+        this.exposureTimeline = exposureTimeline;
+    }
+
+    /**
+     * Test whether cached result was derived from inputs with the same fingerprint.
+     */
+    public boolean matches(final long[] fingerprint) {
+        return Arrays.equals(this.fingerprint, fingerprint);
+    }
+
+    /**
+     * Write analysis cache in compact binary format.
+     */
+    public void write(final OutputStream outputStream) throws IOException {
+        final DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(outputStream));
+        dataOutputStream.writeInt(magic);
+        dataOutputStream.writeInt(version);
+        dataOutputStream.writeInt(fingerprint.length);
+        for (final long value : fingerprint) {
+            dataOutputStream.writeLong(value);
+        }
+        dataOutputStream.writeLong(exposureTimeline.time);
+        dataOutputStream.writeInt(exposureTimeline.value.length);
+        dataOutputStream.write(exposureTimeline.value);
+        dataOutputStream.flush();
+    }
+
+    /**
+     * Read analysis cache in compact binary format.
+     */
+    public final static AnalysisCache read(final InputStream inputStream) throws IOException {
+        final DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(inputStream));
+        if (dataInputStream.readInt() != magic || dataInputStream.readInt() != version) {
+            throw new IOException("Invalid analysis cache format");
+        }
+        final int fingerprintSize = dataInputStream.readInt();
+        if (fingerprintSize < 0 || fingerprintSize > 64) {
+            throw new IOException("Invalid analysis cache fingerprint size");
+        }
+        final long[] fingerprint = new long[fingerprintSize];
+        for (int i = 0; i < fingerprintSize; i++) {
+            fingerprint[i] = dataInputStream.readLong();
+        }
+        final long time = dataInputStream.readLong();
+        final int size = dataInputStream.readInt();
+        if (size < 0) {
+            throw new IOException("Invalid analysis cache size");
+        }
+        final byte[] value = new byte[size];
+        dataInputStream.readFully(value);
+        return new AnalysisCache(fingerprint, new ExposureTimeline(time, value));
+    }
+
+    @Override
+    public String toString() {
+        return "AnalysisCache{" +
+                "fingerprint=" + Arrays.toString(fingerprint) +
+                ", exposureTimeline=" + exposureTimeline +
+                '}';
+    }
+}
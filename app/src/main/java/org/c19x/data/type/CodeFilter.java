@@ -0,0 +1,141 @@
+package org.c19x.data.type;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Bloom filter of beacon codes for skipping codes that are definitely not present, e.g. infected
+ * codes that have never been observed locally. Sized at 10 bits per code with 7 hash functions,
+ * giving about 1% false positives at capacity. There are no false negatives.
+ */
+public class CodeFilter {
+    private final static int magic = 0x43313946;
+    private final static int version = 1;
+    private final static int bitsPerCode = 10;
+    private final static int hashes = 7;
+    /// Filter bits, number of bits is a multiple of 64
+    private final long[] bits;
+    private final long bitCount;
+    /// Number of codes the filter was sized for
+    public final int capacity;
+    /// Number of codes added
+    private volatile int size = 0;
+    /// Database row id of the latest record added, for topping up the filter after restart
+    public volatile long watermark = 0;
+
+    public CodeFilter(final int capacity) {
+        this(capacity, new long[(int) ((Math.max(64L, (long) Math.max(1, capacity) * bitsPerCode) + 63) / 64)]);
+    }
+
+    private CodeFilter(final int capacity, final long[] bits) {
+        this.capacity = capacity;
+        this.bits = bits;
+        this.bitCount = (long) bits.length * 64;
+    }
+
+    /**
+     * Add code to filter.
+     */
+    public void add(final long code) {
+        final long hash = mix(code);
+        final long h1 = hash & 0xFFFFFFFFL;
+        final long h2 = hash >>> 32;
+        for (int i = 0; i < hashes; i++) {
+            final long bit = (h1 + i * h2) % bitCount;
+            bits[(int) (bit >>> 6)] |= (1L << bit);
+        }
+        size++;
+    }
+
+    /**
+     * Test whether code may have been added. False means the code has definitely not been added.
+     */
+    public boolean mightContain(final long code) {
+        final long hash = mix(code);
+        final long h1 = hash & 0xFFFFFFFFL;
+        final long h2 = hash >>> 32;
+        for (int i = 0; i < hashes; i++) {
+            final long bit = (h1 + i * h2) % bitCount;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Test whether more codes have been added than the filter was sized for, thus it should be rebuilt.
+     */
+    public boolean saturated() {
+        return size > capacity;
+    }
+
+    /**
+     * SplitMix64 finalizer for spreading code bits across both hash halves.
+     */
+    private final static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Write code filter in compact binary format.
+     */
+    public void write(final OutputStream outputStream) throws IOException {
+        final DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(outputStream));
+        dataOutputStream.writeInt(magic);
+        dataOutputStream.writeInt(version);
+        dataOutputStream.writeInt(capacity);
+        dataOutputStream.writeInt(size);
+        dataOutputStream.writeLong(watermark);
+        dataOutputStream.writeInt(bits.length);
+        for (final long value : bits) {
+            dataOutputStream.writeLong(value);
+        }
+        dataOutputStream.flush();
+    }
+
+    /**
+     * Read code filter in compact binary format.
+     */
+    public final static CodeFilter read(final InputStream inputStream) throws IOException {
+        final DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(inputStream));
+        if (dataInputStream.readInt() != magic || dataInputStream.readInt() != version) {
+            throw new IOException("Invalid code filter format");
+        }
+        final int capacity = dataInputStream.readInt();
+        final int size = dataInputStream.readInt();
+        final long watermark = dataInputStream.readLong();
+        final int length = dataInputStream.readInt();
+        if (capacity < 0 || size < 0 || length <= 0) {
+            throw new IOException("Invalid code filter size");
+        }
+        final long[] bits = new long[length];
+        for (int i = 0; i < length; i++) {
+            bits[i] = dataInputStream.readLong();
+        }
+        final CodeFilter codeFilter = new CodeFilter(capacity, bits);
+        codeFilter.size = size;
+        codeFilter.watermark = watermark;
+        return codeFilter;
+    }
+
+    @Override
+    public String toString() {
+        return "CodeFilter{" +
+                "capacity=" + capacity +
+                ", size=" + size +
+                ", watermark=" + watermark +
+                '}';
+    }
+}
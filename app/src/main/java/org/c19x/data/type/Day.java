@@ -1,12 +1,37 @@
 package org.c19x.data.type;
 
+import org.c19x.data.Logger;
+
+import java.text.SimpleDateFormat;
+
 public class Day {
+    private final static String tag = Day.class.getName();
+    /// Day code epoch in millis since 1970, day 0 starts at epoch
+    public final static long epoch = epoch();
     public int value = 0;
 
     public Day(int value) {
         this.value = value;
     }
 
+    /**
+     * Day number of time in millis since 1970, counting days from the day code epoch.
+     */
+    public final static int epochDay(final long time) {
+        return (int) ((time - epoch) / (24 * 60 * 60 * 1000));
+    }
+
+    private final static long epoch() {
+        try {
+            final SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+            simpleDateFormat.setLenient(false);
+            return simpleDateFormat.parse("2020-01-01 00:00").getTime();
+        } catch (Throwable e) {
+            Logger.warn(tag, "Failed to get epoch", e);
+            return 0;
+        }
+    }
+
     @Override
     public String toString() {
         return "Day{" +
@@ -0,0 +1,74 @@
+package org.c19x.data.type;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Day code hash chain checkpoints for caching derived day codes across restarts, where checkpoint
+ * k is the chain hash for day (days - 1 - k * interval). The first checkpoint is the hash of the
+ * shared secret, and identifies the chain the checkpoints belong to.
+ */
+public class DayCodeCheckpoints {
+    private final static int magic = 0x43313944;
+    private final static int version = 1;
+    private final static int hashLength = 32;
+    public final int interval;
+    public final byte[][] value;
+
+    public DayCodeCheckpoints(int interval, byte[][] value) {
+        this.interval = interval;
+        this.value = value;
+    }
+
+    /**
+     * Encode checkpoints in compact binary format.
+     */
+    public byte[] encode() {
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(16 + value.length * hashLength);
+        try {
+            final DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+            dataOutputStream.writeInt(magic);
+            dataOutputStream.writeInt(version);
+            dataOutputStream.writeInt(interval);
+            dataOutputStream.writeInt(value.length);
+            for (final byte[] hash : value) {
+                dataOutputStream.write(hash);
+            }
+            dataOutputStream.flush();
+        } catch (IOException e) {
+            // Not thrown by byte array output stream
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * Decode checkpoints in compact binary format.
+     */
+    public final static DayCodeCheckpoints decode(final byte[] data) throws IOException {
+        final DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(data));
+        if (dataInputStream.readInt() != magic || dataInputStream.readInt() != version) {
+            throw new IOException("Invalid day code checkpoints format");
+        }
+        final int interval = dataInputStream.readInt();
+        final int count = dataInputStream.readInt();
+        if (interval <= 0 || count <= 0 || count * hashLength != dataInputStream.available()) {
+            throw new IOException("Invalid day code checkpoints size");
+        }
+        final byte[][] value = new byte[count][hashLength];
+        for (int i = 0; i < count; i++) {
+            dataInputStream.readFully(value[i]);
+        }
+        return new DayCodeCheckpoints(interval, value);
+    }
+
+    @Override
+    public String toString() {
+        return "DayCodeCheckpoints{" +
+                "interval=" + interval +
+                ", count=" + value.length +
+                '}';
+    }
+}
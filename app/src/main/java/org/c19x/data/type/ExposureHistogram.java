@@ -0,0 +1,85 @@
+package org.c19x.data.type;
+
+/**
+ * Histogram of exposure proximity, held as count of exposure periods for each RSSI in [-127, 0],
+ * where value[i] is the count for RSSI -i.
+ */
+public class ExposureHistogram {
+    public final int[] value = new int[128];
+
+    /**
+     * Add exposure period at RSSI, clamped to [-127, 0].
+     */
+    public void add(final int rssi) {
+        value[index(rssi)]++;
+    }
+
+    /**
+     * Remove exposure period at RSSI, clamped to [-127, 0].
+     */
+    public void remove(final int rssi) {
+        value[index(rssi)]--;
+    }
+
+    private final static int index(final int rssi) {
+        return (rssi > 0 ? 0 : (rssi < -127 ? 127 : -rssi));
+    }
+
+    /**
+     * Calculate exposure period at or nearer than RSSI threshold.
+     */
+    public ExposurePeriod period(final RSSI threshold) {
+        final ExposurePeriod period = new ExposurePeriod(0);
+        final int furthest = furthest(threshold);
+        for (int i = 0; i <= furthest; i++) {
+            period.value += value[i];
+        }
+        return period;
+    }
+
+    /**
+     * Calculate exposure period at or nearer than each RSSI threshold from one cumulative histogram.
+     */
+    public ExposurePeriod[] period(final RSSI[] thresholds) {
+        final int[] cumulative = new int[value.length];
+        int sum = 0;
+        for (int i = 0; i < value.length; i++) {
+            sum += value[i];
+            cumulative[i] = sum;
+        }
+        final ExposurePeriod[] periods = new ExposurePeriod[thresholds.length];
+        for (int j = 0; j < thresholds.length; j++) {
+            final int furthest = furthest(thresholds[j]);
+            periods[j] = new ExposurePeriod(furthest < 0 ? 0 : cumulative[furthest]);
+        }
+        return periods;
+    }
+
+    /**
+     * Index of furthest RSSI included by threshold. Threshold above 0 cannot be reached (-1),
+     * and below -127 includes all.
+     */
+    private final static int furthest(final RSSI threshold) {
+        return (threshold.value > 0 ? -1 : Math.min(127, -threshold.value));
+    }
+
+    /**
+     * Convert to exposure proximity.
+     */
+    public ExposureProximity exposureProximity() {
+        final ExposureProximity exposureProximity = new ExposureProximity();
+        for (int i = 0; i < value.length; i++) {
+            if (value[i] > 0) {
+                exposureProximity.value.put(new RSSI(-i), value[i]);
+            }
+        }
+        return exposureProximity;
+    }
+
+    @Override
+    public String toString() {
+        return "ExposureHistogram{" +
+                "period=" + period(new RSSI(-127)).value +
+                '}';
+    }
+}
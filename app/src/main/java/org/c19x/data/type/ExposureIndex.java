@@ -0,0 +1,143 @@
+package org.c19x.data.type;
+
+import org.c19x.data.primitive.Tuple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Queryable exposure result built from exposure timeline, held as sorted primitive arrays for
+ * per-day totals, top-K nearest encounters and exposure in time window without re-running match.
+ * Each entry is one exposure minute, thus exposure period is the number of entries.
+ */
+public class ExposureIndex {
+    /// Start time of each exposure minute in millis since 1970, ascending
+    public final long[] time;
+    /// Nearest encounter RSSI for each exposure minute
+    public final byte[] rssi;
+    /// Days with exposure, ascending, using the same day numbering as day codes
+    private final int[] days;
+    /// Index of first entry for each day, plus end of entries
+    private final int[] dayStart;
+    /// Entry indices ordered by nearest encounter first, most recent first for equal RSSI
+    private final int[] nearest;
+
+    public ExposureIndex(final ExposureTimeline exposureTimeline) {
+        int count = 0;
+        for (int i = 0; i < exposureTimeline.value.length; i++) {
+            if (exposureTimeline.value[i] != ExposureTimeline.none) {
+                count++;
+            }
+        }
+        time = new long[count];
+        rssi = new byte[count];
+        // Timeline slot 0 is most recent, thus iterate backwards for ascending time
+        for (int i = exposureTimeline.value.length, j = 0; i-- > 0; ) {
+            if (exposureTimeline.value[i] != ExposureTimeline.none) {
+                time[j] = exposureTimeline.time - i * TimeInterval.minute.value * 1000;
+                rssi[j] = exposureTimeline.value[i];
+                j++;
+            }
+        }
+        // Per-day partition
+        final int[] dayBuffer = new int[count];
+        final int[] dayStartBuffer = new int[count + 1];
+        int dayCount = 0;
+        for (int j = 0; j < count; j++) {
+            final int day = Day.epochDay(time[j]);
+            if (dayCount == 0 || dayBuffer[dayCount - 1] != day) {
+                dayBuffer[dayCount] = day;
+                dayStartBuffer[dayCount] = j;
+                dayCount++;
+            }
+        }
+        dayStartBuffer[dayCount] = count;
+        days = Arrays.copyOf(dayBuffer, dayCount);
+        dayStart = Arrays.copyOf(dayStartBuffer, dayCount + 1);
+        // Counting sort by RSSI [-127, 0], nearest first
+        final int[] bucketStart = new int[129];
+        for (int j = 0; j < count; j++) {
+            bucketStart[-rssi[j] + 1]++;
+        }
+        for (int b = 1; b < bucketStart.length; b++) {
+            bucketStart[b] += bucketStart[b - 1];
+        }
+        nearest = new int[count];
+        for (int j = count; j-- > 0; ) {
+            nearest[bucketStart[-rssi[j]]++] = j;
+        }
+    }
+
+    /**
+     * Total exposure period.
+     */
+    public ExposurePeriod period() {
+        return new ExposurePeriod(time.length);
+    }
+
+    /**
+     * Exposure period in time window [from, to).
+     */
+    public ExposurePeriod period(final Time from, final Time to) {
+        final int lower = lowerBound(from.value.getTime());
+        final int upper = lowerBound(to.value.getTime());
+        return new ExposurePeriod(Math.max(0, upper - lower));
+    }
+
+    /**
+     * Exposure period on day, using the same day numbering as day codes.
+     */
+    public ExposurePeriod period(final Day day) {
+        final int index = Arrays.binarySearch(days, day.value);
+        return new ExposurePeriod(index < 0 ? 0 : dayStart[index + 1] - dayStart[index]);
+    }
+
+    /**
+     * Days with exposure, in ascending order.
+     */
+    public List<Day> days() {
+        final List<Day> list = new ArrayList<>(days.length);
+        for (final int day : days) {
+            list.add(new Day(day));
+        }
+        return list;
+    }
+
+    /**
+     * Top K nearest encounters, nearest first and most recent first for equal proximity.
+     */
+    public List<Tuple<Time, RSSI>> nearest(final int k) {
+        final int count = Math.min(Math.max(0, k), nearest.length);
+        final List<Tuple<Time, RSSI>> list = new ArrayList<>(count);
+        for (int r = 0; r < count; r++) {
+            final int j = nearest[r];
+            list.add(new Tuple<>(new Time(time[j]), new RSSI(rssi[j])));
+        }
+        return list;
+    }
+
+    /**
+     * Index of first entry at or after time.
+     */
+    private int lowerBound(final long value) {
+        int low = 0, high = time.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (time[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public String toString() {
+        return "ExposureIndex{" +
+                "period=" + time.length +
+                ", days=" + days.length +
+                '}';
+    }
+}
@@ -0,0 +1,111 @@
+package org.c19x.data.type;
+
+import java.util.Arrays;
+
+/**
+ * Exposure over time at minute resolution, held as nearest encounter RSSI for each minute before
+ * reference time, over a fixed window (e.g. 14 days retention = 20160 bytes).
+ */
+public class ExposureTimeline {
+    /// No encounter in minute
+    public final static byte none = Byte.MIN_VALUE;
+    /// Reference time in millis since 1970, slot i is exposure at i minutes before reference time
+    public final long time;
+    public final byte[] value;
+
+    public ExposureTimeline(final long time, final TimeInterval window) {
+        this(time, new byte[(int) (window.value / TimeInterval.minute.value) + 1]);
+        Arrays.fill(value, none);
+    }
+
+    /**
+     * Exposure timeline from existing values, e.g. when reading from storage.
+     */
+    public ExposureTimeline(final long time, final byte[] value) {
+        this.time = time;
+        this.value = value;
+    }
+
+    /**
+     * Add encounter at time, keeping the nearest encounter for each minute.
+     */
+    public void add(final long time, final int rssi) {
+        final int slot = slot(time);
+        if (slot < 0) {
+            // Outside window
+            return;
+        }
+        final byte proximity = rssi(rssi);
+        if (value[slot] == none || value[slot] < proximity) {
+            value[slot] = proximity;
+        }
+    }
+
+    /**
+     * Slot for encounter at time, or -1 if outside window. Encounters after reference time are in slot 0.
+     */
+    public int slot(final long time) {
+        final long minutes = (this.time - time) / 1000 / TimeInterval.minute.value;
+        if (minutes >= value.length) {
+            return -1;
+        }
+        return (minutes < 0 ? 0 : (int) minutes);
+    }
+
+    /**
+     * Same encounters relative to a later reference time, dropping encounters that are now
+     * outside the window.
+     */
+    public ExposureTimeline rebased(final long time) {
+        final byte[] rebasedValue = new byte[value.length];
+        Arrays.fill(rebasedValue, none);
+        final ExposureTimeline rebased = new ExposureTimeline(time, rebasedValue);
+        for (int i = 0; i < value.length; i++) {
+            if (value[i] != none) {
+                rebased.add(this.time - i * TimeInterval.minute.value * 1000, value[i]);
+            }
+        }
+        return rebased;
+    }
+
+    /**
+     * Histogram of exposure proximity.
+     */
+    public ExposureHistogram histogram() {
+        final ExposureHistogram histogram = new ExposureHistogram();
+        for (int i = 0; i < value.length; i++) {
+            if (value[i] != none) {
+                histogram.add(value[i]);
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Convert to exposure over time.
+     */
+    public ExposureOverTime exposureOverTime() {
+        final ExposureOverTime exposureOverTime = new ExposureOverTime();
+        for (int i = 0; i < value.length; i++) {
+            if (value[i] != none) {
+                exposureOverTime.value.put(new ExposurePeriod(-i), new RSSI(value[i]));
+            }
+        }
+        return exposureOverTime;
+    }
+
+    /**
+     * RSSI clamped to [-127, 0].
+     */
+    private final static byte rssi(final int rssi) {
+        return (byte) (rssi > 0 ? 0 : (rssi < -127 ? -127 : rssi));
+    }
+
+    @Override
+    public String toString() {
+        return "ExposureTimeline{" +
+                "time=" + time +
+                ", minutes=" + value.length +
+                '}';
+    }
+}
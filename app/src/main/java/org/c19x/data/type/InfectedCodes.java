@@ -0,0 +1,307 @@
+package org.c19x.data.type;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Beacon codes regenerated from infected beacon code seeds, sorted by code value for lookup by
+ * binary search within radix buckets on the top bits of the code. Each code is held with the
+ * ordinal of its seed, and each seed with its value, the raw value of its status, and its day
+ * (or anyDay if not known), as these are shared by all codes of the seed. The codes are tagged
+ * with the timestamp of the infection data they were regenerated from.
+ */
+public class InfectedCodes {
+    private final static int magic = 0x43313943;
+    private final static int version = 3;
+    public final static int anyDay = Integer.MIN_VALUE;
+    /// Timestamp of source infection data in millis since 1970, or 0 if not known
+    public final long source;
+    public final long[] codes;
+    /// Seed ordinal of each code, index into seeds, status and days
+    public final int[] ordinals;
+    public final long[] seeds;
+    public final byte[] status;
+    public final int[] days;
+    /// Radix index on top bits of code, codes in bucket b are in range [bucketStart[b], bucketStart[b + 1])
+    private final int[] bucketStart;
+    private final int bucketShift;
+
+    public InfectedCodes() {
+        this(0, new long[0], new int[0], new long[0], new byte[0], new int[0], true);
+    }
+
+    /**
+     * Infected codes from code arrays in any order, which are sorted in place by code value, and
+     * seed arrays indexed by the ordinal of each code.
+     */
+    public InfectedCodes(long[] codes, int[] ordinals, long[] seeds, byte[] status, int[] days) {
+        this(0, codes, ordinals, seeds, status, days, false);
+    }
+
+    /**
+     * Infected codes regenerated from infection data with source timestamp, from code arrays in
+     * any order, which are sorted in place by code value, and seed arrays indexed by the ordinal
+     * of each code.
+     */
+    public InfectedCodes(Time source, long[] codes, int[] ordinals, long[] seeds, byte[] status, int[] days) {
+        this(source.value.getTime(), codes, ordinals, seeds, status, days, false);
+    }
+
+    private InfectedCodes(long source, long[] codes, int[] ordinals, long[] seeds, byte[] status, int[] days, boolean sorted) {
+        this.source = source;
+        this.codes = codes;
+        this.ordinals = ordinals;
+        this.seeds = seeds;
+        this.status = status;
+        this.days = days;
+        if (!sorted) {
+            sort(0, codes.length - 1);
+        }
+        // About 8-16 codes per bucket, up to 2^16 buckets
+        final int bits = Math.max(1, Math.min(16, 31 - Integer.numberOfLeadingZeros(Math.max(1, codes.length)) - 3));
+        this.bucketShift = 64 - bits;
+        this.bucketStart = new int[(1 << bits) + 1];
+        for (final long code : codes) {
+            bucketStart[bucket(code) + 1]++;
+        }
+        for (int b = 1; b < bucketStart.length; b++) {
+            bucketStart[b] += bucketStart[b - 1];
+        }
+    }
+
+    /**
+     * Bucket of code, in the same order as signed code values.
+     */
+    private int bucket(final long code) {
+        return (int) ((code ^ Long.MIN_VALUE) >>> bucketShift);
+    }
+
+    /**
+     * Find code by binary search within its bucket, as for Arrays.binarySearch.
+     */
+    private int search(final long code) {
+        final int bucket = bucket(code);
+        return Arrays.binarySearch(codes, bucketStart[bucket], bucketStart[bucket + 1], code);
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * Get index of beacon code, or -1 if the code is not infected.
+     */
+    public int indexOf(final long code) {
+        final int index = search(code);
+        return (index < 0 ? -1 : index);
+    }
+
+    /**
+     * Get index of beacon code regenerated from a seed for any day in range [fromDay, toDay], or
+     * -1 if the code is not infected on those days.
+     */
+    public int indexOf(final long code, final int fromDay, final int toDay) {
+        final int index = search(code);
+        if (index < 0) {
+            return -1;
+        }
+        // Codes are unique in practice, but check all entries for the code
+        int i = index;
+        while (i > 0 && codes[i - 1] == code) {
+            i--;
+        }
+        for (; i < codes.length && codes[i] == code; i++) {
+            final int day = days[ordinals[i]];
+            if (day == anyDay || (day >= fromDay && day <= toDay)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Seed value of code at index.
+     */
+    public long seed(final int index) {
+        return seeds[ordinals[index]];
+    }
+
+    /**
+     * Status of seed of code at index.
+     */
+    public Status status(final int index) {
+        return Status.forRawValue(status[ordinals[index]]);
+    }
+
+    /**
+     * Day of seed of code at index, or anyDay if not known.
+     */
+    public int day(final int index) {
+        return days[ordinals[index]];
+    }
+
+    /**
+     * Test whether codes were regenerated from infection data with the given timestamp.
+     */
+    public boolean from(final Time source) {
+        return this.source == source.value.getTime();
+    }
+
+    /**
+     * Retain only codes regenerated from the given seeds.
+     */
+    public InfectedCodes retain(final Set<Long> retainSeeds) {
+        // Ordinals of retained seeds, -1 for seeds not retained
+        final int[] keptOrdinal = new int[seeds.length];
+        final long[] keptSeeds = new long[seeds.length];
+        final byte[] keptStatus = new byte[seeds.length];
+        final int[] keptDays = new int[seeds.length];
+        int n = 0;
+        for (int j = 0; j < seeds.length; j++) {
+            if (!retainSeeds.contains(seeds[j])) {
+                keptOrdinal[j] = -1;
+                continue;
+            }
+            keptOrdinal[j] = n;
+            keptSeeds[n] = seeds[j];
+            keptStatus[n] = status[j];
+            keptDays[n++] = days[j];
+        }
+        final long[] keptCodes = new long[codes.length];
+        final int[] keptOrdinals = new int[codes.length];
+        int k = 0;
+        for (int i = 0; i < codes.length; i++) {
+            final int ordinal = keptOrdinal[ordinals[i]];
+            if (ordinal < 0) {
+                continue;
+            }
+            keptCodes[k] = codes[i];
+            keptOrdinals[k++] = ordinal;
+        }
+        return new InfectedCodes(source, Arrays.copyOf(keptCodes, k), Arrays.copyOf(keptOrdinals, k),
+                Arrays.copyOf(keptSeeds, n), Arrays.copyOf(keptStatus, n), Arrays.copyOf(keptDays, n), true);
+    }
+
+    /**
+     * Write infected codes in binary format.
+     */
+    public void write(final OutputStream outputStream) throws IOException {
+        final DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(outputStream));
+        dataOutputStream.writeInt(magic);
+        dataOutputStream.writeInt(version);
+        dataOutputStream.writeLong(source);
+        dataOutputStream.writeInt(seeds.length);
+        for (int j = 0; j < seeds.length; j++) {
+            dataOutputStream.writeLong(seeds[j]);
+            dataOutputStream.writeByte(status[j]);
+            dataOutputStream.writeInt(days[j]);
+        }
+        dataOutputStream.writeInt(codes.length);
+        for (int i = 0; i < codes.length; i++) {
+            dataOutputStream.writeLong(codes[i]);
+            dataOutputStream.writeInt(ordinals[i]);
+        }
+        dataOutputStream.flush();
+    }
+
+    /**
+     * Read infected codes in binary format, the codes are validated to be in sorted order.
+     */
+    public final static InfectedCodes read(final InputStream inputStream) throws IOException {
+        final DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(inputStream));
+        if (dataInputStream.readInt() != magic || dataInputStream.readInt() != version) {
+            throw new IOException("Invalid infected codes format");
+        }
+        final long source = dataInputStream.readLong();
+        final int seedCount = dataInputStream.readInt();
+        if (seedCount < 0) {
+            throw new IOException("Invalid infected codes size");
+        }
+        final long[] seeds = new long[seedCount];
+        final byte[] status = new byte[seedCount];
+        final int[] days = new int[seedCount];
+        for (int j = 0; j < seedCount; j++) {
+            seeds[j] = dataInputStream.readLong();
+            status[j] = dataInputStream.readByte();
+            days[j] = dataInputStream.readInt();
+        }
+        final int size = dataInputStream.readInt();
+        if (size < 0) {
+            throw new IOException("Invalid infected codes size");
+        }
+        final long[] codes = new long[size];
+        final int[] ordinals = new int[size];
+        for (int i = 0; i < size; i++) {
+            codes[i] = dataInputStream.readLong();
+            ordinals[i] = dataInputStream.readInt();
+            if (i > 0 && codes[i] < codes[i - 1]) {
+                throw new IOException("Invalid infected codes order");
+            }
+            if (ordinals[i] < 0 || ordinals[i] >= seedCount) {
+                throw new IOException("Invalid infected codes seed");
+            }
+        }
+        return new InfectedCodes(source, codes, ordinals, seeds, status, days, true);
+    }
+
+    /**
+     * Quicksort by code value, moving seed ordinal with each code.
+     */
+    private void sort(int low, int high) {
+        while (high - low > 16) {
+            final int middle = (low + high) >>> 1;
+            // Median of three as pivot
+            if (codes[middle] < codes[low]) swap(middle, low);
+            if (codes[high] < codes[low]) swap(high, low);
+            if (codes[high] < codes[middle]) swap(high, middle);
+            final long pivot = codes[middle];
+            int i = low, j = high;
+            while (i <= j) {
+                while (codes[i] < pivot) i++;
+                while (codes[j] > pivot) j--;
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            // Recurse into smaller partition to bound stack depth
+            if (j - low < high - i) {
+                sort(low, j);
+                low = i;
+            } else {
+                sort(i, high);
+                high = j;
+            }
+        }
+        // Insertion sort for small ranges
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && codes[j] < codes[j - 1]; j--) {
+                swap(j, j - 1);
+            }
+        }
+    }
+
+    private void swap(final int i, final int j) {
+        final long code = codes[i];
+        codes[i] = codes[j];
+        codes[j] = code;
+        final int ordinal = ordinals[i];
+        ordinals[i] = ordinals[j];
+        ordinals[j] = ordinal;
+    }
+
+    @Override
+    public String toString() {
+        return "InfectedCodes{" +
+                "source=" + source +
+                ", seeds=" + seeds.length +
+                ", size=" + codes.length +
+                '}';
+    }
+}
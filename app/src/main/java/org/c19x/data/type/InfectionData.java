@@ -10,6 +10,8 @@ public class InfectionData {
     private final static String tag = InfectionData.class.getName();
     public String json = "{}";
     public Map<BeaconCodeSeed, Status> value = new ConcurrentHashMap<>();
+    /// Day of beacon code seed, where reported by server
+    public Map<BeaconCodeSeed, Day> day = new ConcurrentHashMap<>();
 
     public InfectionData() {
     }
@@ -20,9 +22,13 @@ public class InfectionData {
             j.keys().forEachRemaining(k -> {
                 try {
                     final BeaconCodeSeed beaconCodeSeed = new BeaconCodeSeed(Long.parseLong(k));
-                    final String v = j.getString(k);
-                    final Status status = Status.forRawValue(Integer.parseInt(v));
+                    // Value is status, optionally followed by day of seed (status,day)
+                    final String[] v = j.getString(k).split(",", 2);
+                    final Status status = Status.forRawValue(Integer.parseInt(v[0].trim()));
                     value.put(beaconCodeSeed, status);
+                    if (v.length > 1) {
+                        day.put(beaconCodeSeed, new Day(Integer.parseInt(v[1].trim())));
+                    }
                 } catch (Throwable e) {
                     Logger.warn(tag, "Failed to parse infection data (key={})", k, e);
                 }
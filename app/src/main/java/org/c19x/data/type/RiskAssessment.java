@@ -0,0 +1,38 @@
+package org.c19x.data.type;
+
+public class RiskAssessment {
+    public Advice advice;
+    public Status contactStatus;
+    public ExposurePeriod exposurePeriod;
+    public ExposureOverTime exposureOverTime;
+    public ExposureProximity exposureProximity;
+    public ExposureIndex exposureIndex;
+    public ExposureTimeline exposureTimeline;
+    /// Infected codes the assessment was derived from
+    public InfectedCodes infectedCodes;
+    /// Time of latest contact committed before the assessment in millis since 1970, later contacts may not be included
+    public long contactWatermark;
+
+    public RiskAssessment(Advice advice, Status contactStatus, ExposurePeriod exposurePeriod, ExposureOverTime exposureOverTime, ExposureProximity exposureProximity, ExposureIndex exposureIndex, ExposureTimeline exposureTimeline, InfectedCodes infectedCodes, long contactWatermark) {
+        this.advice = advice;
+        this.contactStatus = contactStatus;
+        this.exposurePeriod = exposurePeriod;
+        this.exposureOverTime = exposureOverTime;
+        this.exposureProximity = exposureProximity;
+        this.exposureIndex = exposureIndex;
+        this.exposureTimeline = exposureTimeline;
+        this.infectedCodes = infectedCodes;
+        this.contactWatermark = contactWatermark;
+    }
+
+    @Override
+    public String toString() {
+        return "RiskAssessment{" +
+                "advice=" + advice +
+                ", contactStatus=" + contactStatus +
+                ", exposurePeriod=" + exposurePeriod +
+                ", exposureProximity=" + exposureProximity +
+                ", exposureIndex=" + exposureIndex +
+                '}';
+    }
+}
@@ -0,0 +1,129 @@
+package org.c19x.logic;
+
+import org.c19x.data.Logger;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Single-flight scheduler for running at most one analysis at a time. Requests that arrive while
+ * an analysis is running are coalesced into a single follow-up run using the latest request, and
+ * the running analysis is cancelled cooperatively as its inputs are stale. Requests with the same
+ * inputs as the running or follow-up run join that run instead. Cancellation is bounded, so that
+ * a steady stream of requests cannot starve analysis. Callers of a stale or coalesced request
+ * receive the result of the follow-up run.
+ *
+ * @param <T> Analysis result.
+ */
+public class AnalysisScheduler<T> {
+    private final static String tag = AnalysisScheduler.class.getName();
+    /// Consecutive cancellations before the running analysis is allowed to complete
+    private final static int maxCancellations = 2;
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private Run<T> running = null;
+    private Run<T> pending = null;
+    private int cancellations = 0;
+
+    /**
+     * Schedule analysis task for unknown inputs, thus always treated as changed.
+     */
+    public CompletableFuture<T> schedule(final Function<BooleanSupplier, T> task) {
+        return schedule(null, task);
+    }
+
+    /**
+     * Schedule analysis task for inputs with the given fingerprint, or null if not known. The task
+     * should check the supplied cancellation flag periodically, and throw CancellationException
+     * if it has been set.
+     */
+    public synchronized CompletableFuture<T> schedule(final long[] inputs, final Function<BooleanSupplier, T> task) {
+        if (running == null) {
+            running = new Run<>(inputs, task);
+            start(running);
+            return running.future;
+        }
+        if (pending == null && !running.cancelled && running.matches(inputs)) {
+            Logger.debug(tag, "Analysis joined running analysis");
+            return running.future;
+        }
+        if (pending != null && pending.matches(inputs)) {
+            Logger.debug(tag, "Analysis joined pending analysis");
+            return pending.future;
+        }
+        if (!running.cancelled && cancellations < maxCancellations) {
+            running.cancelled = true;
+            cancellations++;
+        }
+        if (pending == null) {
+            pending = new Run<>(inputs, task);
+        } else {
+            // Coalesce with pending request, latest inputs win
+            pending.inputs = inputs;
+            pending.task = task;
+        }
+        Logger.debug(tag, "Analysis coalesced (cancellations={})", cancellations);
+        return pending.future;
+    }
+
+    private void start(final Run<T> run) {
+        executorService.execute(() -> execute(run));
+    }
+
+    private void execute(final Run<T> run) {
+        try {
+            final T result = run.task.apply(() -> run.cancelled);
+            synchronized (this) {
+                cancellations = 0;
+            }
+            run.future.complete(result);
+        } catch (CancellationException e) {
+            Logger.debug(tag, "Analysis cancelled");
+        } catch (Throwable e) {
+            Logger.warn(tag, "Analysis failed", e);
+            run.future.completeExceptionally(e);
+        }
+        synchronized (this) {
+            if (!run.future.isDone() && pending != null) {
+                // Stale run completes with result of follow-up run
+                pending.future.whenComplete((result, error) -> {
+                    if (error != null) {
+                        run.future.completeExceptionally(error);
+                    } else {
+                        run.future.complete(result);
+                    }
+                });
+            } else if (!run.future.isDone()) {
+                run.future.cancel(false);
+            }
+            running = pending;
+            pending = null;
+            if (running != null) {
+                start(running);
+            }
+        }
+    }
+
+    private final static class Run<T> {
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private volatile long[] inputs;
+        private volatile Function<BooleanSupplier, T> task;
+        private volatile boolean cancelled = false;
+
+        private Run(final long[] inputs, final Function<BooleanSupplier, T> task) {
+            this.inputs = inputs;
+            this.task = task;
+        }
+
+        /**
+         * Test whether run is for the same known inputs.
+         */
+        private boolean matches(final long[] inputs) {
+            return inputs != null && Arrays.equals(this.inputs, inputs);
+        }
+    }
+}
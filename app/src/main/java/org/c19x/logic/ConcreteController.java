@@ -4,6 +4,7 @@ import android.content.Context;
 import android.media.MediaScannerConnection;
 import android.os.Environment;
 
+import org.c19x.beacon.ConcreteDayCodes;
 import org.c19x.beacon.ConcreteTransceiver;
 import org.c19x.beacon.ReceiverDelegate;
 import org.c19x.beacon.Transceiver;
@@ -15,6 +16,7 @@ import org.c19x.data.primitive.Triple;
 import org.c19x.data.primitive.Tuple;
 import org.c19x.data.type.BeaconCode;
 import org.c19x.data.type.BluetoothState;
+import org.c19x.data.type.Contact;
 import org.c19x.data.type.ContactPattern;
 import org.c19x.data.type.ControllerState;
 import org.c19x.data.type.InfectionData;
@@ -22,6 +24,7 @@ import org.c19x.data.type.Message;
 import org.c19x.data.type.RSSI;
 import org.c19x.data.type.Registration;
 import org.c19x.data.type.RegistrationState;
+import org.c19x.data.type.RiskAssessment;
 import org.c19x.data.type.ServerSettings;
 import org.c19x.data.type.Status;
 import org.c19x.data.type.Time;
@@ -32,17 +35,36 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Deque;
 import java.util.GregorianCalendar;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class ConcreteController implements Controller, ReceiverDelegate {
     private final static String tag = ConcreteController.class.getName();
+    /// Days between day code hash chain checkpoints
+    private final static int dayCodeCheckpointInterval = 64;
+    /// Clock skew tolerance for matching beacon codes to the day of their seed, shared by analysis and online matching
+    private final static TimeInterval clockSkew = TimeInterval.hour;
     private final Settings settings;
     private final Context context;
     private final Database database;
     private final Network network;
     private final RiskAnalysis riskAnalysis;
+    private final OnlineMatcher onlineMatcher = new OnlineMatcher(clockSkew);
     private Transceiver transceiver;
+    private volatile RiskAssessment riskAssessment = null;
+    /// Shared by all contact inserts, thus called once per committed batch
+    private final Consumer<Deque<Contact>> contactsLogged = contacts -> {
+        final Time timestamp = settings.contacts(contacts.size());
+        Logger.debug(tag, "Contacts logged (count={},timestamp={})", contacts.size(), timestamp);
+        delegates.forEach(d -> d.transceiver(timestamp));
+        // Full analysis to include online matches that have now been committed
+        final Contact last = contacts.peekLast();
+        if (last != null && onlineMatcher.committed(last.time)) {
+            riskAnalysis();
+        }
+    };
 
     public ConcreteController(final Context context) {
         this.context = context;
@@ -53,7 +75,7 @@ public class ConcreteController implements Controller, ReceiverDelegate {
         network = new ConcreteNetwork(context, settings);
         database = new ConcreteDatabase(context, contacts -> {
         });
-        riskAnalysis = new ConcreteRiskAnalysis();
+        riskAnalysis = new ConcreteRiskAnalysis(Runtime.getRuntime().availableProcessors(), clockSkew);
 
         // TEST ONLY - REMOVE FOR PRODUCTION
         //reset();
@@ -64,6 +86,11 @@ public class ConcreteController implements Controller, ReceiverDelegate {
         return settings;
     }
 
+    @Override
+    public RiskAssessment riskAssessment() {
+        return riskAssessment;
+    }
+
     @Override
     public void reset() {
         settings.reset();
@@ -84,6 +111,7 @@ public class ConcreteController implements Controller, ReceiverDelegate {
     @Override
     public void background() {
         Logger.debug(tag, "background");
+        database.flush();
         delegates.forEach(d -> d.controller(ControllerState.background));
     }
 
@@ -193,7 +221,13 @@ public class ConcreteController implements Controller, ReceiverDelegate {
             Logger.warn(tag, "Initialise transceiver failed (error=unregistered)");
             return;
         }
-        transceiver = new ConcreteTransceiver(context, registration.sharedSecret, new TimeInterval(120));
+        // Start from cached day code checkpoints, and cache complete checkpoints in background if required
+        final ConcreteDayCodes dayCodes = new ConcreteDayCodes(registration.sharedSecret, dayCodeCheckpointInterval, settings.dayCodeCheckpoints());
+        if (!dayCodes.complete()) {
+            final Thread thread = new Thread(() -> settings.dayCodeCheckpoints(dayCodes.checkpoints()));
+            thread.start();
+        }
+        transceiver = new ConcreteTransceiver(context, dayCodes, new TimeInterval(120));
         transceiver.delegates.add(this);
         Logger.debug(tag, "Initialise transceiver successful (serialNumber={})", registration.serialNumber);
         delegates.forEach(d -> d.transceiver(transceiver));
@@ -317,6 +351,7 @@ public class ConcreteController implements Controller, ReceiverDelegate {
             }
             settings.infectionData(infectionData);
             Logger.debug(tag, "Synchronise infection data successful");
+            // Infected codes are regenerated once per update by the next analysis, on the analysis thread
             applySettings();
         });
     }
@@ -331,14 +366,24 @@ public class ConcreteController implements Controller, ReceiverDelegate {
             final Time timestamp = (contacts.size() == 0 ? Time.distantPast : contacts.getLast().time);
             settings.contacts(contacts.size(), timestamp);
             delegates.forEach(d -> d.database(contacts));
+            riskAnalysis();
+        });
+    }
 
-            // Conduct risk analysis
-            riskAnalysis.advice(contacts, settings, (advice, contactStatus, exposureOverTime, exposureProximity) -> {
-                settings.advice(advice);
-                settings.contacts(contactStatus);
-                settings.pattern(exposureProximity.contactPattern());
-                delegates.forEach(d -> d.advice(advice, contactStatus));
-            });
+    /**
+     * Conduct risk analysis on database, reading only contacts for possible matches by code filter.
+     * Online matches of contacts committed after the analysis started are replayed into the result,
+     * thus advice is only applied once the online matcher has been reset.
+     */
+    private void riskAnalysis() {
+        riskAnalysis.advice(database, settings, (advice, contactStatus, exposureOverTime, exposureProximity) -> {
+        }).thenAccept(analysed -> {
+            final RiskAssessment riskAssessment = onlineMatcher.reset(analysed, settings.status().a, settings.advice().a, settings.proximity(), settings.exposure());
+            this.riskAssessment = riskAssessment;
+            settings.advice(riskAssessment.advice);
+            settings.contacts(riskAssessment.contactStatus);
+            settings.pattern(riskAssessment.exposureProximity.contactPattern());
+            delegates.forEach(d -> d.advice(riskAssessment.advice, riskAssessment.contactStatus));
         });
     }
 
@@ -375,11 +420,18 @@ public class ConcreteController implements Controller, ReceiverDelegate {
     // MARK:- ReceiverDelegate
 
     public void receiver(BeaconCode didDetect, RSSI rssi) {
-        database.insert(new Time(), didDetect, rssi, contacts -> {
-            final Time timestamp = settings.contacts(database.contacts.size());
-            Logger.debug(tag, "Contact logged (code={},rssi={},count={},timestamp={})", didDetect.value, rssi.value, database.contacts.size(), timestamp);
-            delegates.forEach(d -> d.transceiver(timestamp));
-        });
+        final Time time = new Time();
+        database.insert(time, didDetect, rssi, contactsLogged);
+
+        // Update exposure in real time for already known infected codes, without waiting for batch commit
+        final RiskAssessment riskAssessment = onlineMatcher.match(time, didDetect, rssi);
+        if (riskAssessment != null) {
+            this.riskAssessment = riskAssessment;
+            settings.advice(riskAssessment.advice);
+            settings.contacts(riskAssessment.contactStatus);
+            settings.pattern(riskAssessment.exposureProximity.contactPattern());
+            delegates.forEach(d -> d.advice(riskAssessment.advice, riskAssessment.contactStatus));
+        }
     }
 
     public void receiver(BluetoothState didUpdateState) {
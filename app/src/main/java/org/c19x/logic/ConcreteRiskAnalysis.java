@@ -1,138 +1,448 @@
 package org.c19x.logic;
 
 import org.c19x.beacon.ConcreteBeaconCodes;
+import org.c19x.data.Database;
 import org.c19x.data.Logger;
 import org.c19x.data.Settings;
 import org.c19x.data.primitive.QuadConsumer;
 import org.c19x.data.primitive.Triple;
 import org.c19x.data.primitive.Tuple;
 import org.c19x.data.type.Advice;
-import org.c19x.data.type.BeaconCode;
+import org.c19x.data.type.AnalysisCache;
+import org.c19x.data.type.BeaconCodeSeed;
+import org.c19x.data.type.CodeFilter;
 import org.c19x.data.type.Contact;
+import org.c19x.data.type.Day;
+import org.c19x.data.type.ExposureHistogram;
+import org.c19x.data.type.ExposureIndex;
 import org.c19x.data.type.ExposureOverTime;
 import org.c19x.data.type.ExposurePeriod;
 import org.c19x.data.type.ExposureProximity;
+import org.c19x.data.type.ExposureTimeline;
+import org.c19x.data.type.InfectedCodes;
 import org.c19x.data.type.InfectionData;
 import org.c19x.data.type.RSSI;
+import org.c19x.data.type.RiskAssessment;
 import org.c19x.data.type.Status;
 import org.c19x.data.type.Time;
 import org.c19x.data.type.TimeInterval;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Deque;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 
+/**
+ * Risk analysis matching contacts against beacon codes regenerated from infected seeds. Codes are
+ * regenerated once per infection data update, in parallel across seeds if enabled, and matching
+ * is a lookup of each contact in the sorted infected codes on the calling analysis thread.
+ */
 public class ConcreteRiskAnalysis implements RiskAnalysis {
     private final static String tag = ConcreteRiskAnalysis.class.getName();
+    /// Minimum number of infected seeds expanded by each parallel task
+    private final static int seedsPerTask = 64;
+    /// Number of contacts read from database at a time for streaming analysis
+    private final static int contactsPerChunk = 1024;
+    /// Number of codes per database query for reading contacts by code, within SQLite variable limit
+    private final static int codesPerQuery = 512;
+    private final int parallelism;
+    private final ForkJoinPool forkJoinPool;
+    private final AnalysisScheduler<RiskAssessment> scheduler = new AnalysisScheduler<>();
+    /// Clock skew tolerance in millis for matching beacon codes to the day of their seed
+    private final long clockSkew;
+
+    /**
+     * Risk analysis regenerating infected codes on the calling thread only.
+     */
+    public ConcreteRiskAnalysis() {
+        this(1);
+    }
+
+    /**
+     * Risk analysis regenerating infected codes in parallel on up to the given number of threads.
+     */
+    public ConcreteRiskAnalysis(final int parallelism) {
+        this(parallelism, TimeInterval.hour);
+    }
+
+    /**
+     * Risk analysis regenerating infected codes in parallel on up to the given number of threads,
+     * and matching contacts to seeds for the day of contact, plus or minus the clock skew tolerance.
+     */
+    public ConcreteRiskAnalysis(final int parallelism, final TimeInterval clockSkew) {
+        this.parallelism = Math.max(1, parallelism);
+        this.forkJoinPool = (this.parallelism > 1 ? new ForkJoinPool(this.parallelism) : null);
+        this.clockSkew = clockSkew.value * 1000;
+    }
 
     @Override
-    public void advice(Deque<Contact> contacts, Settings settings, QuadConsumer<Advice, Status, ExposureOverTime, ExposureProximity> callback) {
-        final Triple<Status, Time, Time> settingsStatus = settings.status();
-        final Triple<Advice, Advice, Time> settingsAdvice = settings.advice();
-        final ExposurePeriod exposureThreshold = settings.exposure();
-        // Match in background
-        final Thread thread = new Thread(() -> {
-            final Triple<ExposurePeriod, ExposureOverTime, ExposureProximity> match = match(contacts, settings);
-            final Advice advice = (settingsStatus.a != Status.healthy ? Advice.selfIsolation :
-                    (match.a.value < exposureThreshold.value ? settingsAdvice.a : Advice.selfIsolation));
-            final Status contactStatus = (match.a.value == 0 ? Status.healthy : Status.infectious);
+    public CompletableFuture<RiskAssessment> advice(Deque<Contact> contacts, Settings settings, QuadConsumer<Advice, Status, ExposureOverTime, ExposureProximity> callback) {
+        return advice(inputs(fingerprint(contacts, settings), settings), contacts, cancelled -> cachedMatch(contacts, settings, cancelled), settings, callback);
+    }
+
+    @Override
+    public CompletableFuture<RiskAssessment> advice(Database database, Settings settings, QuadConsumer<Advice, Status, ExposureOverTime, ExposureProximity> callback) {
+        // Committed contacts are appended to database contacts after they are stored
+        return advice(null, Database.contacts, cancelled -> match(database, settings, cancelled), settings, callback);
+    }
+
+    /**
+     * Schedule match, where contacts are the committed contacts in time order for establishing
+     * the contact watermark of the assessment.
+     */
+    private CompletableFuture<RiskAssessment> advice(long[] inputs, Deque<Contact> contacts, Function<BooleanSupplier, Tuple<ExposureTimeline, InfectedCodes>> match, Settings settings, QuadConsumer<Advice, Status, ExposureOverTime, ExposureProximity> callback) {
+        // Match in background, one analysis at a time
+        return scheduler.schedule(inputs, cancelled -> {
+            final long contactWatermark = contactWatermark(contacts);
+            final Triple<Status, Time, Time> settingsStatus = settings.status();
+            final Triple<Advice, Advice, Time> settingsAdvice = settings.advice();
+            final ExposurePeriod exposureThreshold = settings.exposure();
+            final RSSI rssiThreshold = settings.proximity();
+            final Tuple<ExposureTimeline, InfectedCodes> matched = match.apply(cancelled);
+            final ExposureTimeline exposureTimeline = matched.a;
+            final ExposureHistogram exposureHistogram = exposureTimeline.histogram();
+            final ExposurePeriod exposurePeriod = exposureHistogram.period(rssiThreshold);
+            final Advice advice = advice(settingsStatus.a, settingsAdvice.a, exposurePeriod, exposureThreshold);
+            final Status contactStatus = contactStatus(exposurePeriod);
+            // Stale results are superseded by the follow-up analysis
+            checkCancelled(cancelled);
+            final ExposureOverTime exposureOverTime = exposureTimeline.exposureOverTime();
+            final ExposureProximity exposureProximity = exposureHistogram.exposureProximity();
             Logger.debug(tag, "Advice (advice={},default={},status={},contactStatus={},exposure={},proximity={})",
-                    advice, settingsAdvice.a, settingsStatus.a, contactStatus, match.a, match.c);
-            callback.accept(advice, contactStatus, match.b, match.c);
+                    advice, settingsAdvice.a, settingsStatus.a, contactStatus, exposurePeriod, exposureProximity);
+            return new RiskAssessment(advice, contactStatus, exposurePeriod, exposureOverTime, exposureProximity, new ExposureIndex(exposureTimeline), exposureTimeline, matched.b, contactWatermark);
+        }).thenApply(riskAssessment -> {
+            // Every request receives the result, including coalesced requests
+            callback.accept(riskAssessment.advice, riskAssessment.contactStatus, riskAssessment.exposureOverTime, riskAssessment.exposureProximity);
+            return riskAssessment;
         });
-        thread.start();
     }
 
     /**
-     * Match contacts against infection data.
+     * Time of latest contact, all contacts up to this time are included in a match started now.
      */
-    private Triple<ExposurePeriod, ExposureOverTime, ExposureProximity> match(Deque<Contact> contacts, Settings settings) {
-        final Tuple<InfectionData, Time> infectionData = settings.infectionData();
-        final RSSI rssiThreshold = settings.proximity();
-        final Map<BeaconCode, Collection<Contact>> beaconsForMatching = beacons(contacts);
-        final ExposureOverTime exposureOverTime = exposure(beaconsForMatching, infectionData.a);
-        final ExposureProximity exposureProximity = proximity(exposureOverTime);
-        final ExposurePeriod exposurePeriod = period(exposureProximity, rssiThreshold);
-        return new Triple<>(exposurePeriod, exposureOverTime, exposureProximity);
+    private final static long contactWatermark(Deque<Contact> contacts) {
+        final Contact last = contacts.peekLast();
+        return (last == null ? Long.MIN_VALUE : last.time.value.getTime());
     }
 
     /**
-     * Create map of beacon codes for matching.
+     * Fingerprint of all inputs to advice for scheduling, i.e. fingerprint of the analysis inputs
+     * plus the status, default advice and thresholds that are applied after matching.
      */
-    private Map<BeaconCode, Collection<Contact>> beacons(Deque<Contact> contacts) {
-        final Map<BeaconCode, Collection<Contact>> beacons = new HashMap<>();
-        contacts.forEach(contact -> {
-            Collection<Contact> beaconCodeContacts = beacons.get(contact.code);
-            if (beaconCodeContacts == null) {
-                beaconCodeContacts = new ArrayList<>(1);
-                beacons.put(contact.code, beaconCodeContacts);
-            }
-            beaconCodeContacts.add(contact);
-        });
-        return beacons;
+    private final static long[] inputs(long[] fingerprint, Settings settings) {
+        final long[] inputs = Arrays.copyOf(fingerprint, fingerprint.length + 4);
+        inputs[fingerprint.length] = settings.status().a.ordinal();
+        inputs[fingerprint.length + 1] = settings.advice().a.ordinal();
+        inputs[fingerprint.length + 2] = settings.exposure().value;
+        inputs[fingerprint.length + 3] = settings.proximity().value;
+        return inputs;
+    }
+
+    @Override
+    public RiskAssessment[] advice(Deque<Contact> contacts, Settings settings, RSSI[] proximity, ExposurePeriod[] exposure) {
+        if (proximity.length != exposure.length) {
+            Logger.warn(tag, "Thresholds mismatch (proximity={},exposure={})", proximity.length, exposure.length);
+            return null;
+        }
+        final Triple<Status, Time, Time> settingsStatus = settings.status();
+        final Triple<Advice, Advice, Time> settingsAdvice = settings.advice();
+        final long contactWatermark = contactWatermark(contacts);
+        final Tuple<ExposureTimeline, InfectedCodes> matched = match(contacts, settings, () -> false);
+        final ExposureTimeline exposureTimeline = matched.a;
+        final ExposureHistogram exposureHistogram = exposureTimeline.histogram();
+        final ExposurePeriod[] exposurePeriods = exposureHistogram.period(proximity);
+        final ExposureOverTime exposureOverTime = exposureTimeline.exposureOverTime();
+        final ExposureProximity exposureProximity = exposureHistogram.exposureProximity();
+        final ExposureIndex exposureIndex = new ExposureIndex(exposureTimeline);
+        final RiskAssessment[] riskAssessments = new RiskAssessment[proximity.length];
+        for (int i = 0; i < riskAssessments.length; i++) {
+            riskAssessments[i] = new RiskAssessment(advice(settingsStatus.a, settingsAdvice.a, exposurePeriods[i], exposure[i]),
+                    contactStatus(exposurePeriods[i]), exposurePeriods[i], exposureOverTime, exposureProximity, exposureIndex, exposureTimeline, matched.b, contactWatermark);
+        }
+        Logger.debug(tag, "Advice for thresholds (count={},exposure={})", riskAssessments.length, exposureHistogram);
+        return riskAssessments;
+    }
+
+    /**
+     * Advice given own status, default advice, and exposure period against exposure threshold.
+     */
+    final static Advice advice(Status status, Advice defaultAdvice, ExposurePeriod exposurePeriod, ExposurePeriod exposureThreshold) {
+        return (status != Status.healthy ? Advice.selfIsolation :
+                (exposurePeriod.value < exposureThreshold.value ? defaultAdvice : Advice.selfIsolation));
     }
 
     /**
-     * Regenerate beacon codes from infection data for matching to establish exposure over time.
+     * Contact status given exposure period.
      */
-    private ExposureOverTime exposure(Map<BeaconCode, Collection<Contact>> beacons, InfectionData infectionData) {
-        final ExposureOverTime exposureOverTime = new ExposureOverTime();
+    final static Status contactStatus(ExposurePeriod exposurePeriod) {
+        return (exposurePeriod.value == 0 ? Status.healthy : Status.infectious);
+    }
+
+    @Override
+    public InfectedCodes infectedCodes(InfectionData infectionData) {
+        return infectedCodes(infectionData, Time.distantPast);
+    }
+
+    @Override
+    public InfectedCodes infectedCodes(InfectionData infectionData, Time source) {
+        final List<BeaconCodeSeed> seeds = new ArrayList<>(infectionData.value.size());
+        final List<Status> seedStatus = new ArrayList<>(infectionData.value.size());
         infectionData.value.forEach((beaconCodeSeed, status) -> {
-            if (status == Status.healthy) {
+            if (status != Status.healthy) {
                 // Matching symptomatic or confirmed diagnosis only
-                return;
-            }
-            // Regenerate beacon codes based on seed
-            final BeaconCode[] beaconCodesForMatching = ConcreteBeaconCodes.beaconCodes(beaconCodeSeed, ConcreteBeaconCodes.codesPerDay);
-            for (int i = 0; i < beaconCodesForMatching.length; i++) {
-                final BeaconCode beaconCode = beaconCodesForMatching[i];
-                final Collection<Contact> contacts = beacons.get(beaconCode);
-                if (contacts == null) {
-                    // Unmatched
-                    continue;
-                }
-                contacts.forEach(contact -> {
-                    final ExposurePeriod exposurePeriod = new ExposurePeriod((int) (contact.time.timeIntervalSinceNow().value / TimeInterval.minute.value));
-                    // Identify nearest encounter for each exposure period
-                    final RSSI exposureProximity = exposureOverTime.value.get(exposurePeriod);
-                    if (exposureProximity == null || exposureProximity.value < contact.rssi.value) {
-                        exposureOverTime.value.put(exposurePeriod, contact.rssi);
-                    }
-                });
+                seeds.add(beaconCodeSeed);
+                seedStatus.add(status);
             }
         });
-        return exposureOverTime;
+        final long[] seedValues = new long[seeds.size()];
+        final byte[] seedStatusValues = new byte[seeds.size()];
+        final int[] seedDays = new int[seeds.size()];
+        for (int j = 0; j < seedValues.length; j++) {
+            final Day day = infectionData.day.get(seeds.get(j));
+            seedValues[j] = seeds.get(j).value;
+            seedStatusValues[j] = (byte) Status.toRawValue(seedStatus.get(j));
+            seedDays[j] = (day == null ? InfectedCodes.anyDay : day.value);
+        }
+        // Codes of the j-th seed are at offset j * codesPerDay
+        final long[] codes = expand(seeds);
+        final int[] ordinals = new int[codes.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = i / ConcreteBeaconCodes.codesPerDay;
+        }
+        final InfectedCodes infectedCodes = new InfectedCodes(source, codes, ordinals, seedValues, seedStatusValues, seedDays);
+        Logger.debug(tag, "Regenerated infected codes (seeds={},codes={})", seedValues.length, infectedCodes.size());
+        return infectedCodes;
+    }
+
+    /**
+     * Match contacts against infection data, returning the exposure timeline and the infected codes it was derived from.
+     */
+    protected Tuple<ExposureTimeline, InfectedCodes> match(Deque<Contact> contacts, Settings settings, BooleanSupplier cancelled) {
+        final InfectedCodes infectedCodes = infectedCodes(settings);
+        checkCancelled(cancelled);
+        final ExposureTimeline exposureTimeline = new ExposureTimeline(System.currentTimeMillis(), settings.retentionPeriod());
+        exposure(contacts, infectedCodes, exposureTimeline, cancelled);
+        return new Tuple<>(exposureTimeline, infectedCodes);
+    }
+
+    /**
+     * Match contacts against infected codes into exposure timeline for window before time,
+     * independent of settings, e.g. for benchmarking the matching pipeline on a plain JVM.
+     */
+    public ExposureTimeline match(Iterable<Contact> contacts, InfectedCodes infectedCodes, Time time, TimeInterval window) {
+        final ExposureTimeline exposureTimeline = new ExposureTimeline(time.value.getTime(), window);
+        exposure(contacts, infectedCodes, exposureTimeline, () -> false);
+        return exposureTimeline;
+    }
+
+    /**
+     * Match contacts against infection data, reusing the result of the last analysis if the
+     * fingerprint of the analysis inputs is unchanged, e.g. after restart.
+     */
+    private Tuple<ExposureTimeline, InfectedCodes> cachedMatch(Deque<Contact> contacts, Settings settings, BooleanSupplier cancelled) {
+        final long[] fingerprint = fingerprint(contacts, settings);
+        final AnalysisCache analysisCache = settings.analysisCache();
+        if (analysisCache != null && analysisCache.matches(fingerprint)) {
+            Logger.debug(tag, "Reusing cached analysis (fingerprint={})", Arrays.toString(fingerprint));
+            return new Tuple<>(analysisCache.exposureTimeline.rebased(System.currentTimeMillis()), infectedCodes(settings));
+        }
+        final Tuple<ExposureTimeline, InfectedCodes> matched = match(contacts, settings, cancelled);
+        settings.analysisCache(new AnalysisCache(fingerprint, matched.a));
+        return matched;
     }
 
     /**
-     * Histogram of exposure proximity
+     * Fingerprint of analysis inputs, i.e. contact count and time range, infection data timestamp,
+     * retention period and clock skew tolerance. Thresholds are applied after matching, thus
+     * they are not part of the fingerprint.
      */
-    private ExposureProximity proximity(ExposureOverTime exposureOverTime) {
-        final ExposureProximity proximity = new ExposureProximity();
-        exposureOverTime.value.values().forEach(rssi -> {
-            final Integer count = proximity.value.get(rssi);
-            if (count == null) {
-                proximity.value.put(rssi, 1);
-            } else {
-                proximity.value.put(rssi, 1 + count.intValue());
+    protected long[] fingerprint(Deque<Contact> contacts, Settings settings) {
+        final Contact first = contacts.peekFirst();
+        final Contact last = contacts.peekLast();
+        return new long[]{
+                contacts.size(),
+                (first == null ? 0 : first.time.value.getTime()),
+                (last == null ? 0 : last.time.value.getTime()),
+                settings.infectionDataTimestamp().value.getTime(),
+                settings.retentionPeriod().value,
+                clockSkew};
+    }
+
+    /**
+     * Match contacts read from database against infection data. Infected codes are tested against
+     * the database code filter first, and only contacts for possible hits are read from database.
+     * Without a code filter, all contacts are read in chunks. Memory use is bounded by the infected
+     * codes, the exposure timeline and one chunk of contacts.
+     */
+    protected Tuple<ExposureTimeline, InfectedCodes> match(Database database, Settings settings, BooleanSupplier cancelled) {
+        final InfectedCodes infectedCodes = infectedCodes(settings);
+        checkCancelled(cancelled);
+        final ExposureTimeline exposureTimeline = new ExposureTimeline(System.currentTimeMillis(), settings.retentionPeriod());
+        final CodeFilter codeFilter = database.codeFilter();
+        if (codeFilter == null) {
+            database.contacts(contactsPerChunk, chunk -> {
+                checkCancelled(cancelled);
+                exposure(chunk, infectedCodes, exposureTimeline, cancelled);
+            });
+            return new Tuple<>(exposureTimeline, infectedCodes);
+        }
+        // Probe code filter with each infected code, codes are sorted thus duplicates are adjacent
+        long[] candidates = new long[codesPerQuery];
+        int count = 0;
+        for (int i = 0; i < infectedCodes.codes.length; i++) {
+            if ((i & 0xFFFF) == 0) {
+                checkCancelled(cancelled);
             }
-        });
-        return proximity;
+            final long code = infectedCodes.codes[i];
+            if ((i > 0 && infectedCodes.codes[i - 1] == code) || !codeFilter.mightContain(code)) {
+                continue;
+            }
+            if (count == candidates.length) {
+                candidates = Arrays.copyOf(candidates, count * 2);
+            }
+            candidates[count++] = code;
+        }
+        // Read possible hits from database
+        for (int from = 0; from < count; from += codesPerQuery) {
+            checkCancelled(cancelled);
+            final long[] codes = Arrays.copyOfRange(candidates, from, Math.min(count, from + codesPerQuery));
+            exposure(database.contacts(codes), infectedCodes, exposureTimeline, cancelled);
+        }
+        Logger.debug(tag, "Filtered match (codes={},candidates={},filter={})", infectedCodes.size(), count, codeFilter);
+        return new Tuple<>(exposureTimeline, infectedCodes);
+    }
+
+    /**
+     * Get infected codes regenerated on infection data update, or regenerate and store now if not available.
+     */
+    protected InfectedCodes infectedCodes(Settings settings) {
+        final InfectedCodes settingsInfectedCodes = settings.infectedCodes();
+        if (settingsInfectedCodes != null) {
+            return settingsInfectedCodes;
+        }
+        return infectedCodes(settings, settings.infectionData());
     }
 
     /**
-     * Calculate exposure period.
+     * Get infected codes regenerated from infection data snapshot, or regenerate and store now if
+     * the stored codes are not available or were regenerated from other infection data.
      */
-    private ExposurePeriod period(ExposureProximity proximity, RSSI threshold) {
-        final ExposurePeriod period = new ExposurePeriod(0);
-        proximity.value.forEach((rssi, count) -> {
-            if (rssi.value >= threshold.value) {
-                period.value += count.intValue();
+    protected InfectedCodes infectedCodes(Settings settings, Tuple<InfectionData, Time> infectionData) {
+        final InfectedCodes settingsInfectedCodes = settings.infectedCodes();
+        if (settingsInfectedCodes != null && settingsInfectedCodes.from(infectionData.b)) {
+            return settingsInfectedCodes;
+        }
+        final InfectedCodes infectedCodes = infectedCodes(infectionData.a, infectionData.b);
+        settings.infectedCodes(infectedCodes);
+        return infectedCodes;
+    }
+
+    /**
+     * Look up each contact in infected codes for the day of contact to establish exposure over time.
+     */
+    private void exposure(Iterable<Contact> contacts, InfectedCodes infectedCodes, ExposureTimeline exposureTimeline, BooleanSupplier cancelled) {
+        int count = 0;
+        for (final Contact contact : contacts) {
+            if ((++count & 0x3FF) == 0) {
+                checkCancelled(cancelled);
             }
-        });
-        return period;
+            final long time = contact.time.value.getTime();
+            if (infectedCodes.indexOf(contact.code.value, fromDay(time), toDay(time)) < 0) {
+                // Unmatched
+                continue;
+            }
+            // Identify nearest encounter for each exposure period
+            exposureTimeline.add(time, contact.rssi.value);
+        }
+    }
+
+    /**
+     * Abandon analysis if it has been cancelled.
+     */
+    protected final static void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * Earliest seed day for beacon codes detected at time, allowing for clock skew.
+     */
+    protected int fromDay(long time) {
+        return Day.epochDay(time - clockSkew);
     }
 
+    /**
+     * Latest seed day for beacon codes detected at time, allowing for clock skew.
+     */
+    protected int toDay(long time) {
+        return Day.epochDay(time + clockSkew);
+    }
+
+    /**
+     * Clock skew tolerance in millis.
+     */
+    protected long clockSkew() {
+        return clockSkew;
+    }
+
+    /**
+     * Number of days either side of the day of a seed that may contain contacts for the seed, allowing for clock skew.
+     */
+    protected int clockSkewDays() {
+        return (int) ((clockSkew + TimeInterval.day.value * 1000 - 1) / (TimeInterval.day.value * 1000));
+    }
+
+    /**
+     * Regenerate beacon codes from seeds, in parallel if enabled.
+     */
+    private long[] expand(List<BeaconCodeSeed> seeds) {
+        if (forkJoinPool == null || seeds.size() <= seedsPerTask) {
+            return ConcreteBeaconCodes.beaconCodes(seeds);
+        }
+        final long[] values = new long[seeds.size()];
+        for (int j = 0; j < values.length; j++) {
+            values[j] = seeds.get(j).value;
+        }
+        final long[] codes = new long[values.length * ConcreteBeaconCodes.codesPerDay];
+        final int threshold = Math.max(seedsPerTask, values.length / (parallelism * 4));
+        forkJoinPool.invoke(new ExpansionTask(values, 0, values.length, threshold, codes));
+        return codes;
+    }
+
+    /**
+     * Fork-join task for regenerating beacon codes for a range of seeds.
+     */
+    private final static class ExpansionTask extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+        private final long[] seeds;
+        private final int from, to, threshold;
+        private final long[] codes;
+
+        private ExpansionTask(long[] seeds, int from, int to, int threshold, long[] codes) {
+            this.seeds = seeds;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.codes = codes;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                ConcreteBeaconCodes.beaconCodes(seeds, from, to, codes);
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            invokeAll(new ExpansionTask(seeds, from, middle, threshold, codes),
+                    new ExpansionTask(seeds, middle, to, threshold, codes));
+        }
+    }
 }
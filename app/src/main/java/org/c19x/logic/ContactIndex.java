@@ -0,0 +1,167 @@
+package org.c19x.logic;
+
+import org.c19x.data.type.Contact;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Open addressing index of contacts keyed by beacon code value for matching. Contact rows are
+ * held in flat primitive arrays, and rows sharing the same beacon code are chained by row offset,
+ * thus building and probing the index does not allocate per contact or per lookup.
+ */
+public class ContactIndex {
+    public final static int none = -1;
+    private final static float loadFactor = 0.5f;
+    // Contact rows
+    private long[] code;
+    private long[] time;
+    private int[] rssi;
+    private int[] next;
+    private int size = 0;
+    // Hash table of beacon code -> first contact row
+    private long[] keys;
+    private int[] heads;
+    private int mask;
+    private int keyCount = 0;
+
+    public ContactIndex(final int capacity) {
+        final int rows = Math.max(16, capacity);
+        code = new long[rows];
+        time = new long[rows];
+        rssi = new int[rows];
+        next = new int[rows];
+        final int slots = tableSize(rows);
+        keys = new long[slots];
+        heads = new int[slots];
+        Arrays.fill(heads, none);
+        mask = slots - 1;
+    }
+
+    public ContactIndex(final Collection<Contact> contacts) {
+        this(contacts.size());
+        contacts.forEach(contact -> add(contact.code.value, contact.time.value.getTime(), contact.rssi.value));
+    }
+
+    /**
+     * Add contact row to index.
+     */
+    public void add(final long code, final long time, final int rssi) {
+        if (size == this.code.length) {
+            growRows();
+        }
+        if (keyCount >= keys.length * loadFactor) {
+            growTable();
+        }
+        final int row = size++;
+        this.code[row] = code;
+        this.time[row] = time;
+        this.rssi[row] = rssi;
+        int slot = slot(code);
+        while (heads[slot] != none) {
+            if (keys[slot] == code) {
+                // Append to head of existing chain
+                next[row] = heads[slot];
+                heads[slot] = row;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = code;
+        heads[slot] = row;
+        next[row] = none;
+        keyCount++;
+    }
+
+    /**
+     * Get first contact row for beacon code, or none if unmatched.
+     */
+    public int first(final long code) {
+        int slot = slot(code);
+        int head;
+        while ((head = heads[slot]) != none) {
+            if (keys[slot] == code) {
+                return head;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return none;
+    }
+
+    /**
+     * Get next contact row with the same beacon code, or none if this is the last.
+     */
+    public int next(final int row) {
+        return next[row];
+    }
+
+    public long code(final int row) {
+        return code[row];
+    }
+
+    public long time(final int row) {
+        return time[row];
+    }
+
+    public int rssi(final int row) {
+        return rssi[row];
+    }
+
+    /**
+     * Number of contact rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Number of distinct beacon codes.
+     */
+    public int codes() {
+        return keyCount;
+    }
+
+    private int slot(final long code) {
+        // Beacon codes are hash values already, just fold and spread the bits
+        final long h = (code ^ (code >>> 32)) * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    private final static int tableSize(final int rows) {
+        final int minimum = (int) Math.ceil(rows / loadFactor);
+        int slots = 16;
+        while (slots < minimum && slots < (1 << 30)) {
+            slots <<= 1;
+        }
+        return slots;
+    }
+
+    private void growRows() {
+        final int rows = code.length << 1;
+        code = Arrays.copyOf(code, rows);
+        time = Arrays.copyOf(time, rows);
+        rssi = Arrays.copyOf(rssi, rows);
+        next = Arrays.copyOf(next, rows);
+    }
+
+    private void growTable() {
+        final long[] oldKeys = keys;
+        final int[] oldHeads = heads;
+        final int slots = oldKeys.length << 1;
+        keys = new long[slots];
+        heads = new int[slots];
+        Arrays.fill(heads, none);
+        mask = slots - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldHeads[i] == none) {
+                continue;
+            }
+            int slot = slot(oldKeys[i]);
+            while (heads[slot] != none) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            heads[slot] = oldHeads[i];
+        }
+    }
+}
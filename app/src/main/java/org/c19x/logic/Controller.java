@@ -1,6 +1,7 @@
 package org.c19x.logic;
 
 import org.c19x.data.Settings;
+import org.c19x.data.type.RiskAssessment;
 import org.c19x.data.type.Status;
 
 import java.util.Queue;
@@ -37,6 +38,11 @@ public interface Controller {
      */
     void status(Status setTo);
 
+    /**
+     * Get latest risk assessment for querying exposure, or null if analysis has not completed.
+     */
+    RiskAssessment riskAssessment();
+
     /**
      * Export contacts.
      */
@@ -0,0 +1,45 @@
+package org.c19x.logic;
+
+import org.c19x.data.Database;
+import org.c19x.data.Settings;
+import org.c19x.data.primitive.Tuple;
+import org.c19x.data.type.ExposureTimeline;
+import org.c19x.data.type.InfectedCodes;
+import org.c19x.data.type.TimeInterval;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Risk analysis that pushes streaming matching down into the database. Infected codes are bulk
+ * loaded into an indexed table whenever they are regenerated from new infection data, which
+ * persists across restarts, and contacts are matched by a single join that returns the nearest
+ * encounter for each minute, thus no contact objects are created.
+ */
+public class DatabaseRiskAnalysis extends ConcreteRiskAnalysis {
+
+    public DatabaseRiskAnalysis() {
+        super();
+    }
+
+    public DatabaseRiskAnalysis(final int parallelism) {
+        super(parallelism);
+    }
+
+    public DatabaseRiskAnalysis(final int parallelism, final TimeInterval clockSkew) {
+        super(parallelism, clockSkew);
+    }
+
+    @Override
+    protected synchronized Tuple<ExposureTimeline, InfectedCodes> match(Database database, Settings settings, BooleanSupplier cancelled) {
+        final InfectedCodes infectedCodes = infectedCodes(settings);
+        checkCancelled(cancelled);
+        if (infectedCodes.source == 0 || infectedCodes.source != database.infectedCodesSource()) {
+            // Infected codes have been regenerated from other infection data since last load
+            database.infectedCodes(infectedCodes);
+        }
+        checkCancelled(cancelled);
+        final ExposureTimeline exposureTimeline = new ExposureTimeline(System.currentTimeMillis(), settings.retentionPeriod());
+        database.exposure(clockSkew(), exposureTimeline);
+        return new Tuple<>(exposureTimeline, infectedCodes);
+    }
+}
@@ -0,0 +1,60 @@
+package org.c19x.logic;
+
+import org.c19x.data.type.Contact;
+import org.c19x.data.type.Day;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Contact index partitioned by day, using the same day numbering as day codes. Beacon codes
+ * regenerated from a seed are only transmitted on the day of the seed, thus each seed only needs
+ * to be matched against the partition for its day.
+ */
+public class DayContactIndex {
+    private final Map<Integer, ContactIndex> partitions = new HashMap<>();
+    private int size = 0;
+
+    public DayContactIndex() {
+    }
+
+    public DayContactIndex(final Collection<Contact> contacts) {
+        contacts.forEach(contact -> add(contact.code.value, contact.time.value.getTime(), contact.rssi.value));
+    }
+
+    /**
+     * Add contact row to partition for day of contact time.
+     */
+    public void add(final long code, final long time, final int rssi) {
+        final int day = Day.epochDay(time);
+        ContactIndex partition = partitions.get(day);
+        if (partition == null) {
+            partition = new ContactIndex(0);
+            partitions.put(day, partition);
+        }
+        partition.add(code, time, rssi);
+        size++;
+    }
+
+    /**
+     * Get partition for day, or null if there are no contacts on that day.
+     */
+    public ContactIndex partition(final int day) {
+        return partitions.get(day);
+    }
+
+    /**
+     * Get all partitions.
+     */
+    public Collection<ContactIndex> partitions() {
+        return partitions.values();
+    }
+
+    /**
+     * Number of contact rows across all partitions.
+     */
+    public int size() {
+        return size;
+    }
+}
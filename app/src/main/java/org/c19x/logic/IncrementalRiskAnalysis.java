@@ -0,0 +1,257 @@
+package org.c19x.logic;
+
+import org.c19x.data.Logger;
+import org.c19x.data.Settings;
+import org.c19x.data.primitive.Tuple;
+import org.c19x.data.type.BeaconCode;
+import org.c19x.data.type.BeaconCodeSeed;
+import org.c19x.data.type.Contact;
+import org.c19x.data.type.ExposureTimeline;
+import org.c19x.data.type.InfectedCodes;
+import org.c19x.data.type.InfectionData;
+import org.c19x.data.type.RSSI;
+import org.c19x.data.type.Status;
+import org.c19x.data.type.Time;
+import org.c19x.data.type.TimeInterval;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Incremental risk analysis that keeps matched contacts from the previous run, and only matches
+ * the delta on each run, i.e. new contacts against all infected codes, and new infected seeds
+ * against all contacts. Matches are retracted when the contact is removed by the retention
+ * period, or the seed is no longer reported as infected.
+ */
+public class IncrementalRiskAnalysis extends ConcreteRiskAnalysis {
+    private final static String tag = IncrementalRiskAnalysis.class.getName();
+    /// Infected seeds matched so far
+    private final Map<BeaconCodeSeed, Status> seeds = new HashMap<>();
+    /// Beacon codes regenerated from infected seeds matched so far, shared with settings
+    private InfectedCodes infectedCodes = new InfectedCodes();
+    /// Index of all contacts matched so far by day, may include contacts removed since
+    private DayContactIndex contactIndex = new DayContactIndex();
+    /// Time of latest contact matched so far
+    private long contactWatermark = Long.MIN_VALUE;
+    /// Number of contacts matched so far at watermark time, as later batches may add contacts at that time
+    private int contactWatermarkCount = 0;
+    /// Matched contacts for each infected seed
+    private final Map<BeaconCodeSeed, List<Contact>> matches = new HashMap<>();
+
+    public IncrementalRiskAnalysis() {
+        super();
+    }
+
+    public IncrementalRiskAnalysis(final int parallelism) {
+        super(parallelism);
+    }
+
+    public IncrementalRiskAnalysis(final int parallelism, final TimeInterval clockSkew) {
+        super(parallelism, clockSkew);
+    }
+
+    @Override
+    protected synchronized Tuple<ExposureTimeline, InfectedCodes> match(Deque<Contact> contacts, Settings settings, BooleanSupplier cancelled) {
+        // Infection data and infected codes are from one snapshot, as both change on synchronisation
+        final Tuple<InfectionData, Time> infectionData = settings.infectionData();
+        final ExposureTimeline exposureTimeline = match(contacts, infectionData.a, () -> infectedCodes(settings, infectionData), System.currentTimeMillis(), settings.retentionPeriod(), cancelled);
+        return new Tuple<>(exposureTimeline, infectedCodes);
+    }
+
+    /**
+     * Match contacts against infection data into exposure timeline for window before time,
+     * independent of settings, e.g. for testing. Infected codes are regenerated from the
+     * infection data when its infected seeds have changed since the last run.
+     */
+    public ExposureTimeline match(Deque<Contact> contacts, InfectionData infectionData, Time time, TimeInterval window) {
+        return match(contacts, infectionData, () -> infectedCodes(infectionData), time.value.getTime(), window, () -> false);
+    }
+
+    private synchronized ExposureTimeline match(Deque<Contact> contacts, InfectionData infectionData, Supplier<InfectedCodes> infectedCodesSupplier, long time, TimeInterval window, BooleanSupplier cancelled) {
+        // Matching state is updated in place, so cancel before any changes only
+        checkCancelled(cancelled);
+        // Contacts are held in time order, anything before the first contact has been removed
+        final Contact firstContact = contacts.peekFirst();
+        final long oldest = (firstContact == null ? Long.MAX_VALUE : firstContact.time.value.getTime());
+        retractContacts(oldest);
+        // Seeds delta
+        final Map<BeaconCodeSeed, Status> addedSeeds = new HashMap<>();
+        final Set<Long> removedSeeds = new HashSet<>();
+        seeds(infectionData, addedSeeds, removedSeeds);
+        retractSeeds(removedSeeds);
+        // Infected codes are regenerated once per infection data update, and must be current
+        // before any matching, otherwise new contacts would match codes of removed seeds
+        if (!addedSeeds.isEmpty() || !removedSeeds.isEmpty()) {
+            infectedCodes = infectedCodesSupplier.get();
+        }
+        // New infected seeds against existing contacts, new contacts are not in the index yet
+        if (!addedSeeds.isEmpty()) {
+            final Set<Long> addedSeedValues = new HashSet<>(addedSeeds.size());
+            addedSeeds.keySet().forEach(beaconCodeSeed -> addedSeedValues.add(beaconCodeSeed.value));
+            final InfectedCodes addedCodes = infectedCodes.retain(addedSeedValues);
+            final int skewDays = clockSkewDays();
+            for (int i = 0; i < addedCodes.codes.length; i++) {
+                final int day = addedCodes.day(i);
+                if (day == InfectedCodes.anyDay) {
+                    // Day of seed unknown, match all days
+                    for (final ContactIndex partition : contactIndex.partitions()) {
+                        match(addedCodes, i, partition, oldest);
+                    }
+                    continue;
+                }
+                // Match contacts on day of seed only, allowing for clock skew
+                for (int d = day - skewDays; d <= day + skewDays; d++) {
+                    final ContactIndex partition = contactIndex.partition(d);
+                    if (partition != null) {
+                        match(addedCodes, i, partition, oldest);
+                    }
+                }
+            }
+            seeds.putAll(addedSeeds);
+        }
+        // Contacts delta
+        final List<Contact> addedContacts = contacts(contacts);
+        if (contacts.size() < contactIndex.size() / 2) {
+            // Rebuild index once most of it has been removed by retention
+            contactIndex = new DayContactIndex(contacts);
+        } else {
+            addedContacts.forEach(contact -> contactIndex.add(contact.code.value, contact.time.value.getTime(), contact.rssi.value));
+        }
+        // New contacts against all current infected codes
+        addedContacts.forEach(contact -> {
+            final long contactTime = contact.time.value.getTime();
+            final int index = infectedCodes.indexOf(contact.code.value, fromDay(contactTime), toDay(contactTime));
+            if (index >= 0) {
+                match(new BeaconCodeSeed(infectedCodes.seed(index)), contact);
+            }
+        });
+        Logger.debug(tag, "Incremental match (addedContacts={},addedSeeds={},removedSeeds={},seeds={},matches={})",
+                addedContacts.size(), addedSeeds.size(), removedSeeds.size(), seeds.size(), matches.size());
+        final ExposureTimeline exposureTimeline = new ExposureTimeline(time, window);
+        matches.values().forEach(seedMatches -> seedMatches.forEach(contact -> exposureTimeline.add(contact.time.value.getTime(), contact.rssi.value)));
+        return exposureTimeline;
+    }
+
+    /**
+     * Establish infected seeds that have been added or removed since the last run.
+     */
+    private void seeds(InfectionData infectionData, Map<BeaconCodeSeed, Status> added, Set<Long> removed) {
+        final Set<BeaconCodeSeed> infected = new HashSet<>(infectionData.value.size());
+        infectionData.value.forEach((beaconCodeSeed, status) -> {
+            if (status == Status.healthy) {
+                // Matching symptomatic or confirmed diagnosis only
+                return;
+            }
+            infected.add(beaconCodeSeed);
+            if (!seeds.containsKey(beaconCodeSeed)) {
+                added.put(beaconCodeSeed, status);
+            }
+        });
+        seeds.keySet().forEach(beaconCodeSeed -> {
+            if (!infected.contains(beaconCodeSeed)) {
+                removed.add(beaconCodeSeed.value);
+            }
+        });
+    }
+
+    /**
+     * Get contacts added since the last run, and advance watermark.
+     */
+    private List<Contact> contacts(Deque<Contact> contacts) {
+        final List<Contact> added = new ArrayList<>();
+        final List<Contact> atWatermark = new ArrayList<>();
+        long watermark = contactWatermark;
+        // Contacts are appended in time order, so only the tail needs to be checked
+        final Iterator<Contact> iterator = contacts.descendingIterator();
+        while (iterator.hasNext()) {
+            final Contact contact = iterator.next();
+            final long time = contact.time.value.getTime();
+            if (time < contactWatermark) {
+                break;
+            }
+            if (time == contactWatermark) {
+                atWatermark.add(contact);
+                continue;
+            }
+            added.add(contact);
+            if (time > watermark) {
+                watermark = time;
+            }
+        }
+        // Contacts at watermark time are appended after those matched before, newest first here
+        added.addAll(atWatermark.subList(0, Math.max(0, atWatermark.size() - contactWatermarkCount)));
+        if (watermark == contactWatermark) {
+            contactWatermarkCount = atWatermark.size();
+        } else {
+            int count = 0;
+            for (final Contact contact : added) {
+                if (contact.time.value.getTime() == watermark) {
+                    count++;
+                }
+            }
+            contactWatermarkCount = count;
+        }
+        contactWatermark = watermark;
+        return added;
+    }
+
+    /**
+     * Match infected code against contacts in partition.
+     */
+    private void match(InfectedCodes infectedCodes, int i, ContactIndex partition, long oldest) {
+        final long code = infectedCodes.codes[i];
+        final int day = infectedCodes.day(i);
+        for (int row = partition.first(code); row != ContactIndex.none; row = partition.next(row)) {
+            final long time = partition.time(row);
+            if (time < oldest || (day != InfectedCodes.anyDay && (day < fromDay(time) || day > toDay(time)))) {
+                continue;
+            }
+            match(new BeaconCodeSeed(infectedCodes.seed(i)), new Contact(new Time(time), new RSSI(partition.rssi(row)), new BeaconCode(code)));
+        }
+    }
+
+    private void match(BeaconCodeSeed beaconCodeSeed, Contact contact) {
+        List<Contact> seedMatches = matches.get(beaconCodeSeed);
+        if (seedMatches == null) {
+            seedMatches = new ArrayList<>(1);
+            matches.put(beaconCodeSeed, seedMatches);
+        }
+        seedMatches.add(contact);
+    }
+
+    /**
+     * Retract matches for contacts removed by retention period.
+     */
+    private void retractContacts(long oldest) {
+        final Iterator<List<Contact>> iterator = matches.values().iterator();
+        while (iterator.hasNext()) {
+            final List<Contact> seedMatches = iterator.next();
+            seedMatches.removeIf(contact -> contact.time.value.getTime() < oldest);
+            if (seedMatches.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Retract matches for seeds that are no longer infected.
+     */
+    private void retractSeeds(Set<Long> removed) {
+        if (removed.isEmpty()) {
+            return;
+        }
+        removed.forEach(seed -> {
+            final BeaconCodeSeed beaconCodeSeed = new BeaconCodeSeed(seed);
+            seeds.remove(beaconCodeSeed);
+            matches.remove(beaconCodeSeed);
+        });
+    }
+}
@@ -0,0 +1,160 @@
+package org.c19x.logic;
+
+import org.c19x.data.Logger;
+import org.c19x.data.type.Advice;
+import org.c19x.data.type.BeaconCode;
+import org.c19x.data.type.Contact;
+import org.c19x.data.type.Day;
+import org.c19x.data.type.ExposureHistogram;
+import org.c19x.data.type.ExposureIndex;
+import org.c19x.data.type.ExposurePeriod;
+import org.c19x.data.type.ExposureTimeline;
+import org.c19x.data.type.InfectedCodes;
+import org.c19x.data.type.RSSI;
+import org.c19x.data.type.RiskAssessment;
+import org.c19x.data.type.Status;
+import org.c19x.data.type.Time;
+import org.c19x.data.type.TimeInterval;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Online matcher for checking each detected beacon code against the infected codes of the last
+ * analysis at insert time, and updating the running exposure timeline, so that exposure updates in
+ * real time between full analyses. Unmatched detections cost a single bucketed lookup, and matched
+ * detections update the exposure histogram in place against the thresholds of the last analysis.
+ * Matched detections are kept until a full analysis has included them, and replayed into the
+ * result of any analysis of contacts committed before them, so that exposure is not rolled back.
+ */
+public class OnlineMatcher {
+    private final static String tag = OnlineMatcher.class.getName();
+    /// Clock skew tolerance in millis for matching beacon codes to the day of their seed, as for risk analysis
+    private final long clockSkew;
+    private InfectedCodes infectedCodes = null;
+    private ExposureTimeline exposureTimeline = null;
+    private ExposureHistogram exposureHistogram = null;
+    private Status status = null;
+    private Advice defaultAdvice = null;
+    private RSSI proximity = null;
+    private ExposurePeriod exposure = null;
+    private Advice advice = null;
+    private Status contactStatus = null;
+    /// Matched detections that may not be included in the last analysis yet
+    private final List<Contact> matched = new ArrayList<>();
+    /// Contact watermark of the last analysis
+    private long contactWatermark = Long.MIN_VALUE;
+
+    public OnlineMatcher(final TimeInterval clockSkew) {
+        this.clockSkew = clockSkew.value * 1000;
+    }
+
+    /**
+     * Reset matcher to result of full analysis, including the infected codes it was derived from,
+     * and the own status, default advice and thresholds to apply to matches. Matched detections
+     * after the contact watermark of the analysis are replayed into its result. Returns the
+     * analysis result, or the updated result if any detections were replayed.
+     */
+    public synchronized RiskAssessment reset(final RiskAssessment riskAssessment, final Status status, final Advice defaultAdvice, final RSSI proximity, final ExposurePeriod exposure) {
+        this.infectedCodes = riskAssessment.infectedCodes;
+        this.status = status;
+        this.defaultAdvice = defaultAdvice;
+        this.proximity = proximity;
+        this.exposure = exposure;
+        this.advice = riskAssessment.advice;
+        this.contactStatus = riskAssessment.contactStatus;
+        this.contactWatermark = riskAssessment.contactWatermark;
+        // Detections in the same millisecond as the watermark may be in a later batch, replay is idempotent
+        matched.removeIf(contact -> contact.time.value.getTime() < riskAssessment.contactWatermark);
+        long time = riskAssessment.exposureTimeline.time;
+        for (final Contact contact : matched) {
+            time = Math.max(time, contact.time.value.getTime());
+        }
+        // Copy of timeline, as it is updated in place
+        this.exposureTimeline = riskAssessment.exposureTimeline.rebased(time);
+        int replayed = 0;
+        for (final Contact contact : matched) {
+            final long contactTime = contact.time.value.getTime();
+            if (infectedCodes.indexOf(contact.code.value, Day.epochDay(contactTime - clockSkew), Day.epochDay(contactTime + clockSkew)) >= 0) {
+                exposureTimeline.add(contactTime, contact.rssi.value);
+                replayed++;
+            }
+        }
+        this.exposureHistogram = exposureTimeline.histogram();
+        if (replayed == 0) {
+            return riskAssessment;
+        }
+        final ExposurePeriod exposurePeriod = exposureHistogram.period(proximity);
+        advice = ConcreteRiskAnalysis.advice(status, defaultAdvice, exposurePeriod, exposure);
+        contactStatus = ConcreteRiskAnalysis.contactStatus(exposurePeriod);
+        Logger.debug(tag, "Replayed online matches (count={},contactWatermark={},exposure={},advice={},contactStatus={})",
+                replayed, contactWatermark, exposurePeriod, advice, contactStatus);
+        return riskAssessment(exposurePeriod);
+    }
+
+    /**
+     * Test whether any matched detection has been committed, i.e. is at or before the given time
+     * of the latest committed contact, but is after the contact watermark of the last analysis.
+     */
+    public synchronized boolean committed(final Time latestCommitted) {
+        final long committedTime = latestCommitted.value.getTime();
+        for (final Contact contact : matched) {
+            final long time = contact.time.value.getTime();
+            if (time > contactWatermark && time <= committedTime) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Match detected beacon code against infected codes. Returns updated advice and contact status
+     * if the detection is infected and either has changed, otherwise null.
+     */
+    public synchronized RiskAssessment match(final Time time, final BeaconCode code, final RSSI rssi) {
+        if (infectedCodes == null || exposureTimeline == null) {
+            return null;
+        }
+        final long timeMillis = time.value.getTime();
+        if (infectedCodes.indexOf(code.value, Day.epochDay(timeMillis - clockSkew), Day.epochDay(timeMillis + clockSkew)) < 0) {
+            return null;
+        }
+        // Timeline minutes are relative to reference time, rebase when a minute has elapsed
+        if (timeMillis - exposureTimeline.time >= TimeInterval.minute.value * 1000) {
+            exposureTimeline = exposureTimeline.rebased(timeMillis);
+            exposureHistogram = exposureTimeline.histogram();
+        }
+        // Update histogram for change in nearest encounter of minute only
+        final int slot = exposureTimeline.slot(timeMillis);
+        if (slot < 0) {
+            return null;
+        }
+        matched.add(new Contact(time, rssi, code));
+        final byte previous = exposureTimeline.value[slot];
+        exposureTimeline.add(timeMillis, rssi.value);
+        final byte current = exposureTimeline.value[slot];
+        if (current == previous) {
+            return null;
+        }
+        if (previous != ExposureTimeline.none) {
+            exposureHistogram.remove(previous);
+        }
+        exposureHistogram.add(current);
+        final ExposurePeriod exposurePeriod = exposureHistogram.period(proximity);
+        final Advice updatedAdvice = ConcreteRiskAnalysis.advice(status, defaultAdvice, exposurePeriod, exposure);
+        final Status updatedContactStatus = ConcreteRiskAnalysis.contactStatus(exposurePeriod);
+        Logger.debug(tag, "Online match (code={},rssi={},exposure={},advice={},contactStatus={})",
+                code.value, rssi.value, exposurePeriod, updatedAdvice, updatedContactStatus);
+        if (updatedAdvice == advice && updatedContactStatus == contactStatus) {
+            return null;
+        }
+        advice = updatedAdvice;
+        contactStatus = updatedContactStatus;
+        return riskAssessment(exposurePeriod);
+    }
+
+    private RiskAssessment riskAssessment(final ExposurePeriod exposurePeriod) {
+        return new RiskAssessment(advice, contactStatus, exposurePeriod, exposureTimeline.exposureOverTime(),
+                exposureHistogram.exposureProximity(), new ExposureIndex(exposureTimeline), exposureTimeline.rebased(exposureTimeline.time), infectedCodes, contactWatermark);
+    }
+}
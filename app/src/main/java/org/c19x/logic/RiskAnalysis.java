@@ -1,15 +1,52 @@
 package org.c19x.logic;
 
+import org.c19x.data.Database;
 import org.c19x.data.Settings;
 import org.c19x.data.primitive.QuadConsumer;
 import org.c19x.data.type.Advice;
 import org.c19x.data.type.Contact;
 import org.c19x.data.type.ExposureOverTime;
+import org.c19x.data.type.ExposurePeriod;
 import org.c19x.data.type.ExposureProximity;
+import org.c19x.data.type.InfectedCodes;
+import org.c19x.data.type.InfectionData;
+import org.c19x.data.type.RSSI;
+import org.c19x.data.type.RiskAssessment;
 import org.c19x.data.type.Status;
+import org.c19x.data.type.Time;
 
 import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
 
 public interface RiskAnalysis {
-    void advice(Deque<Contact> contacts, Settings settings, QuadConsumer<Advice, Status, ExposureOverTime, ExposureProximity> callback);
+    /**
+     * Match contacts against infection data to establish advice. Requests made while an analysis
+     * is running are coalesced, and the callback of every request is called with the result of
+     * analysis of the latest inputs.
+     */
+    CompletableFuture<RiskAssessment> advice(Deque<Contact> contacts, Settings settings, QuadConsumer<Advice, Status, ExposureOverTime, ExposureProximity> callback);
+
+    /**
+     * Streaming variant of advice for devices that cannot keep all contacts in memory. Contacts
+     * are read from the database in fixed-size chunks in time order and matched chunk by chunk.
+     */
+    CompletableFuture<RiskAssessment> advice(Database database, Settings settings, QuadConsumer<Advice, Status, ExposureOverTime, ExposureProximity> callback);
+
+    /**
+     * Match contacts against infection data once, and establish exposure period and advice for
+     * each pair of proximity and exposure thresholds, e.g. for calibrating thresholds. Runs on the
+     * calling thread without affecting scheduled analysis. Returns null if the arrays differ in length.
+     */
+    RiskAssessment[] advice(Deque<Contact> contacts, Settings settings, RSSI[] proximity, ExposurePeriod[] exposure);
+
+    /**
+     * Regenerate beacon codes from infected seeds in infection data for matching.
+     */
+    InfectedCodes infectedCodes(InfectionData infectionData);
+
+    /**
+     * Regenerate beacon codes from infected seeds in infection data for matching, tagged with the
+     * timestamp of the infection data, so that codes from other infection data can be discarded.
+     */
+    InfectedCodes infectedCodes(InfectionData infectionData, Time source);
 }
@@ -1,8 +1,25 @@
 package org.c19x.beacon;
 
+import org.c19x.data.primitive.Tuple;
+import org.c19x.data.type.BeaconCode;
+import org.c19x.data.type.BeaconCodeSeed;
+import org.c19x.data.type.Day;
+import org.c19x.data.type.DayCode;
+import org.c19x.data.type.DayCodeCheckpoints;
 import org.c19x.data.type.SharedSecret;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 public class DayCodesTest {
 
     @Test
@@ -14,4 +31,100 @@ public class DayCodesTest {
         final BeaconCodes beaconCodes = new ConcreteBeaconCodes(dayCodes);
         System.err.println(beaconCodes.get());
     }
+
+    @Test
+    public void lazyDayCodes() {
+        final SharedSecret sharedSecret = new SharedSecret(new byte[]{1, 2, 3});
+        final ConcreteDayCodes eager = new ConcreteDayCodes(sharedSecret);
+        final ConcreteDayCodes lazy = new ConcreteDayCodes(sharedSecret, 64);
+        // Descending, then ascending to reuse checkpoints
+        for (int day = 365 * 5; day-- > 0; ) {
+            assertEquals(eager.dayCode(day).value, lazy.dayCode(day).value);
+        }
+        for (int day = 0; day < 365 * 5; day += 7) {
+            assertEquals(eager.dayCode(day).value, lazy.dayCode(day).value);
+        }
+        assertNull(lazy.dayCode(-1));
+        assertNull(lazy.dayCode(365 * 5));
+        assertNull(lazy.seed(new Day(-1)));
+        assertNull(lazy.seed(new Day(365 * 5)));
+    }
+
+    @Test
+    public void cachedDayCodes() throws Exception {
+        final SharedSecret sharedSecret = new SharedSecret(new byte[]{1, 2, 3});
+        final ConcreteDayCodes eager = new ConcreteDayCodes(sharedSecret);
+        final DayCodeCheckpoints checkpoints = DayCodeCheckpoints.decode(new ConcreteDayCodes(sharedSecret, 64).checkpoints().encode());
+        final ConcreteDayCodes cached = new ConcreteDayCodes(sharedSecret, 64, checkpoints);
+        assertTrue(cached.complete());
+        for (int day = 0; day < 365 * 5; day += 5) {
+            assertEquals(eager.dayCode(day).value, cached.dayCode(day).value);
+        }
+        // Checkpoints from another shared secret are ignored
+        final ConcreteDayCodes other = new ConcreteDayCodes(new SharedSecret(new byte[]{4}), 64, checkpoints);
+        assertFalse(other.complete());
+        assertEquals(new ConcreteDayCodes(new SharedSecret(new byte[]{4})).dayCode(0).value, other.dayCode(0).value);
+    }
+
+    @Test
+    public void beaconCodes() throws Exception {
+        final MessageDigest sha = MessageDigest.getInstance("SHA-256");
+        // Enough seeds for lockstep lanes and remainder
+        final long[] seeds = new long[100];
+        final Random random = new Random(0);
+        for (int j = 0; j < seeds.length; j++) {
+            seeds[j] = (j < 4 ? new long[]{0, -1, Long.MIN_VALUE, Long.MAX_VALUE}[j] : random.nextLong());
+        }
+        final long[] codes = new long[seeds.length * ConcreteBeaconCodes.codesPerDay];
+        ConcreteBeaconCodes.beaconCodes(seeds, 0, seeds.length, codes);
+        for (int j = 0; j < seeds.length; j++) {
+            // Reference derivation with message digest
+            byte[] hash = sha.digest(ByteBuffer.allocate(Long.BYTES).putLong(0, seeds[j]).array());
+            for (int i = ConcreteBeaconCodes.codesPerDay; i-- > 0; ) {
+                assertEquals(ByteBuffer.wrap(hash).getLong(0), codes[j * ConcreteBeaconCodes.codesPerDay + i]);
+                hash = sha.digest(hash);
+            }
+            final BeaconCode[] beaconCodes = ConcreteBeaconCodes.beaconCodes(new BeaconCodeSeed(seeds[j]), ConcreteBeaconCodes.codesPerDay);
+            for (int i = 0; i < beaconCodes.length; i++) {
+                assertEquals(codes[j * ConcreteBeaconCodes.codesPerDay + i], beaconCodes[i].value);
+            }
+        }
+    }
+
+    @Test
+    public void beaconCodesRollover() {
+        final ConcreteDayCodes dayCodes = new ConcreteDayCodes(new SharedSecret(new byte[]{1, 2, 3}), 64);
+        final int[] today = {100};
+        final DayCodes clock = new DayCodes() {
+            @Override
+            public Day day() {
+                return new Day(today[0]);
+            }
+
+            @Override
+            public DayCode get() {
+                return dayCodes.dayCode(today[0]);
+            }
+
+            @Override
+            public Tuple<BeaconCodeSeed, Day> seed() {
+                return seed(day());
+            }
+
+            @Override
+            public Tuple<BeaconCodeSeed, Day> seed(final Day day) {
+                return dayCodes.seed(day);
+            }
+        };
+        final BeaconCodes beaconCodes = new ConcreteBeaconCodes(clock);
+        for (; today[0] < 103; today[0]++) {
+            final Set<Long> expected = new HashSet<>();
+            for (final BeaconCode beaconCode : ConcreteBeaconCodes.beaconCodes(dayCodes.seed(new Day(today[0])).a, ConcreteBeaconCodes.codesPerDay)) {
+                expected.add(beaconCode.value);
+            }
+            for (int i = 0; i < 10; i++) {
+                assertTrue(expected.contains(beaconCodes.get().value));
+            }
+        }
+    }
 }
@@ -0,0 +1,88 @@
+package org.c19x.data;
+
+import org.c19x.data.type.BeaconCode;
+import org.c19x.data.type.Contact;
+import org.c19x.data.type.RSSI;
+import org.c19x.data.type.Time;
+import org.c19x.data.type.TimeInterval;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ContactBatchTest {
+    private final ScheduledExecutorService operationQueue = Executors.newSingleThreadScheduledExecutor();
+    private final Deque<Contact> contacts = new ConcurrentLinkedDeque<>();
+    private final List<Integer> commits = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void flushOnSize() throws Exception {
+        final ContactBatch contactBatch = new ContactBatch(operationQueue, 4, new TimeInterval(60), contacts, this::commit);
+        final CountDownLatch committed = new CountDownLatch(1);
+        // Same callback for all inserts, as for the controller
+        final Consumer<Deque<Contact>> callback = committedContacts -> committed.countDown();
+        for (int i = 0; i < 4; i++) {
+            contactBatch.add(contact(i), callback);
+        }
+        assertTrue(committed.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(4), commits);
+        assertEquals(4, contacts.size());
+    }
+
+    @Test
+    public void flushOnInterval() throws Exception {
+        final ContactBatch contactBatch = new ContactBatch(operationQueue, 64, new TimeInterval(1), contacts, this::commit);
+        final CountDownLatch committed = new CountDownLatch(1);
+        final Consumer<Deque<Contact>> callback = committedContacts -> committed.countDown();
+        contactBatch.add(contact(0), callback);
+        contactBatch.add(contact(1), callback);
+        assertEquals(0, contacts.size());
+        assertTrue(committed.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(2), commits);
+        assertEquals(2, contacts.size());
+    }
+
+    @Test
+    public void flush() throws Exception {
+        final boolean[] fail = {true};
+        final ContactBatch contactBatch = new ContactBatch(operationQueue, 64, new TimeInterval(60), contacts, contactList -> {
+            if (fail[0]) {
+                throw new IllegalStateException("Insert failed");
+            }
+            commit(contactList);
+        });
+        final CountDownLatch committed = new CountDownLatch(1);
+        final Consumer<Deque<Contact>> callback = committedContacts -> committed.countDown();
+        contactBatch.add(contact(0), callback);
+        contactBatch.add(contact(1), callback);
+        contactBatch.flush();
+        // Failed commit keeps contacts buffered for the next commit
+        operationQueue.submit(() -> fail[0] = false).get();
+        assertEquals(1, committed.getCount());
+        contactBatch.add(contact(2), callback);
+        contactBatch.flush();
+        assertTrue(committed.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(3), commits);
+        assertEquals(3, contacts.size());
+    }
+
+    private void commit(final List<Contact> contactList) {
+        commits.add(contactList.size());
+        contacts.addAll(contactList);
+    }
+
+    private static Contact contact(final int i) {
+        return new Contact(new Time(i * 1000L), new RSSI(-50), new BeaconCode(i));
+    }
+}
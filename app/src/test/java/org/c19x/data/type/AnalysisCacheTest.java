@@ -0,0 +1,48 @@
+package org.c19x.data.type;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnalysisCacheTest {
+
+    @Test
+    public void invalidation() throws Exception {
+        final long[] fingerprint = {100, 1000, 2000, 3000, 14 * TimeInterval.day.value, 3600000};
+        final ExposureTimeline exposureTimeline = new ExposureTimeline(2000, TimeInterval.hour);
+        exposureTimeline.add(2000, -50);
+        final AnalysisCache analysisCache = new AnalysisCache(fingerprint, exposureTimeline);
+        assertTrue(analysisCache.matches(fingerprint.clone()));
+        // Any change to the inputs invalidates the cache
+        for (int i = 0; i < fingerprint.length; i++) {
+            final long[] changed = fingerprint.clone();
+            changed[i]++;
+            assertFalse(analysisCache.matches(changed));
+        }
+        assertFalse(analysisCache.matches(new long[0]));
+        // Persisted cache matches the same inputs only
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        analysisCache.write(outputStream);
+        final AnalysisCache read = AnalysisCache.read(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertTrue(read.matches(fingerprint));
+        assertEquals(exposureTimeline.time, read.exposureTimeline.time);
+        assertArrayEquals(exposureTimeline.value, read.exposureTimeline.value);
+    }
+
+    @Test
+    public void invalidFormat() {
+        try {
+            AnalysisCache.read(new ByteArrayInputStream(new byte[]{0, 0, 0, 0, 0, 0, 0, 1}));
+            throw new AssertionError("Expected IOException");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.c19x.data.type;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CodeFilterTest {
+
+    @Test
+    public void noFalseNegatives() throws Exception {
+        final int capacity = 100000;
+        final CodeFilter codeFilter = new CodeFilter(capacity);
+        final Random random = new Random(0);
+        final long[] codes = new long[capacity];
+        for (int i = 0; i < capacity; i++) {
+            // Include edge values and sequential codes as well as random codes
+            codes[i] = (i < 4 ? new long[]{0, -1, Long.MIN_VALUE, Long.MAX_VALUE}[i] : (i % 2 == 0 ? i : random.nextLong()));
+            codeFilter.add(codes[i]);
+        }
+        for (final long code : codes) {
+            assertTrue(codeFilter.mightContain(code));
+        }
+        assertFalse(codeFilter.saturated());
+        // About 1% false positives at capacity
+        int falsePositives = 0;
+        for (int i = 0; i < capacity; i++) {
+            if (codeFilter.mightContain(random.nextLong())) {
+                falsePositives++;
+            }
+        }
+        assertTrue("False positives " + falsePositives, falsePositives < capacity / 50);
+        // Persisted filter has no false negatives either
+        codeFilter.watermark = 1234;
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        codeFilter.write(outputStream);
+        final CodeFilter read = CodeFilter.read(new ByteArrayInputStream(outputStream.toByteArray()));
+        for (final long code : codes) {
+            assertTrue(read.mightContain(code));
+        }
+        assertEquals(capacity, read.size());
+        assertEquals(1234, read.watermark);
+    }
+
+    @Test
+    public void saturation() {
+        final CodeFilter codeFilter = new CodeFilter(10);
+        for (int i = 0; i < 10; i++) {
+            codeFilter.add(i);
+        }
+        assertFalse(codeFilter.saturated());
+        codeFilter.add(10);
+        assertTrue(codeFilter.saturated());
+        // Saturated filter still has no false negatives
+        for (int i = 0; i <= 10; i++) {
+            assertTrue(codeFilter.mightContain(i));
+        }
+        // Empty filter contains nothing
+        assertFalse(new CodeFilter(0).mightContain(0));
+    }
+}
@@ -0,0 +1,57 @@
+package org.c19x.data.type;
+
+import org.c19x.data.primitive.Tuple;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ExposureIndexTest {
+    private final static long minuteMillis = TimeInterval.minute.value * 1000;
+    private final static long dayMillis = TimeInterval.day.value * 1000;
+
+    @Test
+    public void query() {
+        // Reference time one minute after start of day, thus two minutes before is on previous day
+        final int day = 365;
+        final long time = Day.epoch + day * dayMillis + minuteMillis;
+        final ExposureTimeline exposureTimeline = new ExposureTimeline(time, TimeInterval.day);
+        exposureTimeline.add(time, -60);
+        exposureTimeline.add(time - minuteMillis, -40);
+        exposureTimeline.add(time - 2 * minuteMillis, -60);
+        exposureTimeline.add(time - 10 * minuteMillis, -80);
+        final ExposureIndex exposureIndex = new ExposureIndex(exposureTimeline);
+        assertEquals(4, exposureIndex.period().value);
+        // Entries in ascending time order
+        assertEquals(time - 10 * minuteMillis, exposureIndex.time[0]);
+        assertEquals(time, exposureIndex.time[3]);
+        // Per-day totals either side of day boundary
+        assertEquals(2, exposureIndex.period(new Day(day)).value);
+        assertEquals(2, exposureIndex.period(new Day(day - 1)).value);
+        assertEquals(0, exposureIndex.period(new Day(day + 1)).value);
+        assertEquals(2, exposureIndex.days().size());
+        assertEquals(day - 1, exposureIndex.days().get(0).value);
+        // Time window is [from, to)
+        assertEquals(1, exposureIndex.period(new Time(time - 2 * minuteMillis), new Time(time - minuteMillis)).value);
+        assertEquals(3, exposureIndex.period(new Time(time - 2 * minuteMillis), new Time(time + 1)).value);
+        assertEquals(0, exposureIndex.period(new Time(time), new Time(time - minuteMillis)).value);
+        // Nearest first, most recent first for equal proximity
+        final List<Tuple<Time, RSSI>> nearest = exposureIndex.nearest(3);
+        assertEquals(3, nearest.size());
+        assertEquals(-40, nearest.get(0).b.value);
+        assertEquals(time, nearest.get(1).a.value.getTime());
+        assertEquals(time - 2 * minuteMillis, nearest.get(2).a.value.getTime());
+        assertEquals(4, exposureIndex.nearest(10).size());
+        assertEquals(0, exposureIndex.nearest(-1).size());
+    }
+
+    @Test
+    public void empty() {
+        final ExposureIndex exposureIndex = new ExposureIndex(new ExposureTimeline(0, TimeInterval.hour));
+        assertEquals(0, exposureIndex.period().value);
+        assertEquals(0, exposureIndex.days().size());
+        assertEquals(0, exposureIndex.nearest(1).size());
+        assertEquals(0, exposureIndex.period(new Day(0)).value);
+    }
+}
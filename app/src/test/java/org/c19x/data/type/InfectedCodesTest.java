@@ -0,0 +1,79 @@
+package org.c19x.data.type;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InfectedCodesTest {
+
+    @Test
+    public void indexOf() {
+        final Random random = new Random(0);
+        final int size = 10000;
+        final long[] codes = new long[size];
+        final int[] ordinals = new int[size];
+        final long[] seeds = new long[100];
+        final byte[] status = new byte[100];
+        final int[] days = new int[100];
+        for (int j = 0; j < seeds.length; j++) {
+            seeds[j] = j;
+            days[j] = (j == 0 ? InfectedCodes.anyDay : 100 + j % 10);
+        }
+        final int[] expectedDays = new int[size];
+        for (int i = 0; i < size; i++) {
+            codes[i] = random.nextLong();
+            ordinals[i] = i % 100;
+            expectedDays[i] = days[ordinals[i]];
+        }
+        final long[] expectedCodes = codes.clone();
+        final InfectedCodes infectedCodes = new InfectedCodes(codes, ordinals, seeds, status, days);
+        for (int i = 1; i < size; i++) {
+            assertTrue(infectedCodes.codes[i - 1] <= infectedCodes.codes[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            final int index = infectedCodes.indexOf(expectedCodes[i]);
+            assertEquals(expectedCodes[i], infectedCodes.codes[index]);
+            // Day range is inclusive, and anyDay matches all days
+            assertEquals(index, infectedCodes.indexOf(expectedCodes[i], expectedDays[i], expectedDays[i]));
+            assertEquals((i % 100 == 0 ? index : -1), infectedCodes.indexOf(expectedCodes[i], 0, 99));
+            assertEquals(i % 100, infectedCodes.seed(index));
+        }
+        assertEquals(-1, infectedCodes.indexOf(random.nextLong()));
+        assertEquals(-1, new InfectedCodes().indexOf(0));
+    }
+
+    @Test
+    public void retainAndPersist() throws Exception {
+        final Time source = new Time(1234567890L);
+        final InfectedCodes infectedCodes = new InfectedCodes(source, new long[]{3, 1, 2, 4}, new int[]{2, 0, 1, 1}, new long[]{10, 20, 30}, new byte[]{1, 2, 1}, new int[]{5, 6, 7});
+        assertArrayEquals(new long[]{1, 2, 3, 4}, infectedCodes.codes);
+        assertEquals(10, infectedCodes.seed(0));
+        assertEquals(30, infectedCodes.seed(2));
+        assertEquals(6, infectedCodes.day(3));
+        assertEquals(Status.forRawValue(2), infectedCodes.status(1));
+        final InfectedCodes retained = infectedCodes.retain(Collections.singleton(20L));
+        assertArrayEquals(new long[]{2, 4}, retained.codes);
+        assertArrayEquals(new long[]{20}, retained.seeds);
+        assertEquals(20, retained.seed(1));
+        assertEquals(6, retained.day(1));
+        assertTrue(retained.from(source));
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        infectedCodes.write(outputStream);
+        final InfectedCodes read = InfectedCodes.read(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertArrayEquals(infectedCodes.codes, read.codes);
+        assertArrayEquals(infectedCodes.ordinals, read.ordinals);
+        assertArrayEquals(infectedCodes.seeds, read.seeds);
+        assertArrayEquals(infectedCodes.status, read.status);
+        assertArrayEquals(infectedCodes.days, read.days);
+        assertTrue(read.from(source));
+        assertFalse(read.from(new Time(source.value.getTime() + 1)));
+    }
+}
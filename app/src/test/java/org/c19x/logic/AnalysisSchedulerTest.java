@@ -0,0 +1,149 @@
+package org.c19x.logic;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AnalysisSchedulerTest {
+
+    @Test
+    public void coalescing() throws Exception {
+        final AnalysisScheduler<Integer> scheduler = new AnalysisScheduler<>();
+        final AtomicInteger runs = new AtomicInteger(0);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        // First run blocks until later requests have been made
+        final CompletableFuture<Integer> first = scheduler.schedule(cancelled -> {
+            runs.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                return 0;
+            }
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            return 1;
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        final CompletableFuture<Integer> second = scheduler.schedule(cancelled -> {
+            runs.incrementAndGet();
+            return 2;
+        });
+        final CompletableFuture<Integer> third = scheduler.schedule(cancelled -> {
+            runs.incrementAndGet();
+            return 3;
+        });
+        release.countDown();
+        // Second and third requests are coalesced into one follow-up run with the latest inputs
+        assertEquals(3, (int) third.get(1, TimeUnit.SECONDS));
+        assertEquals(3, (int) second.get(1, TimeUnit.SECONDS));
+        assertEquals(3, (int) first.get(1, TimeUnit.SECONDS));
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    public void boundedCancellation() throws Exception {
+        final AnalysisScheduler<Integer> scheduler = new AnalysisScheduler<>();
+        final int total = 20;
+        final AtomicInteger requests = new AtomicInteger(0);
+        final AtomicInteger firstCompletion = new AtomicInteger(Integer.MAX_VALUE);
+        final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        // Steady stream of requests with changed inputs, each run completes once three further
+        // requests have arrived while it is running, or the stream has ended
+        for (int i = 0; i < total; i++) {
+            final int id = i;
+            futures.add(scheduler.schedule(new long[]{i}, cancelled -> {
+                final int start = requests.get();
+                while (requests.get() < Math.min(total, start + 3)) {
+                    if (cancelled.getAsBoolean()) {
+                        throw new CancellationException();
+                    }
+                    Thread.yield();
+                }
+                firstCompletion.accumulateAndGet(requests.get(), Math::min);
+                return id;
+            }));
+            requests.incrementAndGet();
+            Thread.sleep(5);
+        }
+        for (final CompletableFuture<Integer> future : futures) {
+            future.get(1, TimeUnit.SECONDS);
+        }
+        // An analysis completed while requests were still arriving
+        assertTrue(firstCompletion.get() < total);
+    }
+
+    @Test
+    public void joiningAndCallbacks() throws Exception {
+        final AnalysisScheduler<Integer> scheduler = new AnalysisScheduler<>();
+        final AtomicInteger runs = new AtomicInteger(0);
+        final CountDownLatch callbacks = new CountDownLatch(6);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<Integer> first = scheduler.schedule(new long[]{1}, cancelled -> {
+            runs.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                return 0;
+            }
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            return 1;
+        });
+        first.thenAccept(result -> callbacks.countDown());
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        // Same inputs join the running analysis without cancelling it
+        final CompletableFuture<Integer> joined = scheduler.schedule(new long[]{1}, cancelled -> {
+            runs.incrementAndGet();
+            return -1;
+        });
+        joined.thenAccept(result -> callbacks.countDown());
+        release.countDown();
+        assertEquals(1, (int) first.get(1, TimeUnit.SECONDS));
+        assertEquals(1, (int) joined.get(1, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+        // Every request receives the result
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch unblock = new CountDownLatch(1);
+        final CompletableFuture<Integer> second = scheduler.schedule(new long[]{2}, cancelled -> {
+            blocked.countDown();
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                return 0;
+            }
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            return 2;
+        });
+        assertTrue(blocked.await(1, TimeUnit.SECONDS));
+        final List<CompletableFuture<Integer>> coalesced = new ArrayList<>();
+        for (int i = 3; i < 6; i++) {
+            final int id = i;
+            coalesced.add(scheduler.schedule(new long[]{i}, cancelled -> id));
+        }
+        second.thenAccept(result -> callbacks.countDown());
+        coalesced.forEach(future -> future.thenAccept(result -> callbacks.countDown()));
+        unblock.countDown();
+        assertEquals(5, (int) second.get(1, TimeUnit.SECONDS));
+        for (final CompletableFuture<Integer> future : coalesced) {
+            assertEquals(5, (int) future.get(1, TimeUnit.SECONDS));
+        }
+        assertTrue(callbacks.await(1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,94 @@
+package org.c19x.logic;
+
+import org.c19x.data.type.BeaconCode;
+import org.c19x.data.type.BeaconCodeSeed;
+import org.c19x.data.type.Contact;
+import org.c19x.data.type.Day;
+import org.c19x.data.type.InfectedCodes;
+import org.c19x.data.type.InfectionData;
+import org.c19x.data.type.RSSI;
+import org.c19x.data.type.Status;
+import org.c19x.data.type.Time;
+import org.c19x.data.type.TimeInterval;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic dataset for benchmarking risk analysis. Infected seeds are spread over
+ * the retention period with the day of each seed reported, and contacts are spread over the same
+ * period in time order. A given fraction of contacts is drawn from the infected codes on the day
+ * of their seed, the rest are random codes that will not match.
+ */
+public class BenchmarkDataset {
+    private final static long dayMillis = TimeInterval.day.value * 1000;
+    public final Time time;
+    public final TimeInterval window;
+    public final InfectionData infectionData;
+    public final InfectedCodes infectedCodes;
+    public final Deque<Contact> contacts;
+    public final int matches;
+
+    /**
+     * Generate dataset from random seed, where infected codes are expanded with the given risk analysis.
+     */
+    public BenchmarkDataset(final long randomSeed, final int contactCount, final int seedCount, final double matchRate, final TimeInterval window, final ConcreteRiskAnalysis riskAnalysis) {
+        final Random random = new Random(randomSeed);
+        final int days = (int) Math.max(1, window.value / TimeInterval.day.value);
+        // Fixed day for reproducible datasets, analysis at end of last day
+        final int lastDay = 365;
+        this.time = new Time(Day.epoch + (lastDay + 1L) * dayMillis - 1);
+        this.window = window;
+        infectionData = new InfectionData();
+        for (int i = 0; i < seedCount; i++) {
+            final BeaconCodeSeed beaconCodeSeed = new BeaconCodeSeed(random.nextLong());
+            infectionData.value.put(beaconCodeSeed, (random.nextInt(4) == 0 ? Status.infectious : Status.symptomatic));
+            infectionData.day.put(beaconCodeSeed, new Day(lastDay - random.nextInt(days)));
+        }
+        infectedCodes = riskAnalysis.infectedCodes(infectionData);
+        // Contacts in time order, one per time slot across window
+        contacts = new ArrayDeque<>(contactCount);
+        final long startTime = time.value.getTime() - (long) days * dayMillis + 1;
+        final long interval = Math.max(1, ((long) days * dayMillis - 1) / Math.max(1, contactCount));
+        int matches = 0;
+        for (int i = 0; i < contactCount; i++) {
+            final long contactTime = startTime + i * interval;
+            final int contactDay = Day.epochDay(contactTime);
+            long code = random.nextLong();
+            if (infectedCodes.size() > 0 && random.nextDouble() < matchRate) {
+                // Pick code of an infected seed for the day of contact
+                final int index = infectedCodeOnDay(random, contactDay);
+                if (index >= 0) {
+                    code = infectedCodes.codes[index];
+                    matches++;
+                }
+            }
+            contacts.add(new Contact(new Time(contactTime), new RSSI(-40 - random.nextInt(60)), new BeaconCode(code)));
+        }
+        this.matches = matches;
+    }
+
+    /**
+     * Random infected code for seed on day, or -1 if none found within a bounded number of attempts.
+     */
+    private int infectedCodeOnDay(final Random random, final int day) {
+        for (int attempt = 0; attempt < 64; attempt++) {
+            final int index = random.nextInt(infectedCodes.size());
+            if (infectedCodes.day(index) == day) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "BenchmarkDataset{" +
+                "contacts=" + contacts.size() +
+                ", seeds=" + infectionData.value.size() +
+                ", codes=" + infectedCodes.size() +
+                ", matches=" + matches +
+                '}';
+    }
+}
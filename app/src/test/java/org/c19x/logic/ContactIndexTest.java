@@ -0,0 +1,28 @@
+package org.c19x.logic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ContactIndexTest {
+
+    @Test
+    public void matching() {
+        final ContactIndex contactIndex = new ContactIndex(0);
+        for (int i = 0; i < 1000; i++) {
+            contactIndex.add(i % 100, i, -(i % 100));
+        }
+        assertEquals(1000, contactIndex.size());
+        assertEquals(100, contactIndex.codes());
+        int count = 0;
+        for (int row = contactIndex.first(42); row != ContactIndex.none; row = contactIndex.next(row)) {
+            assertEquals(42, contactIndex.code(row));
+            assertEquals(-42, contactIndex.rssi(row));
+            assertEquals(42, contactIndex.time(row) % 100);
+            count++;
+        }
+        assertEquals(10, count);
+        assertEquals(ContactIndex.none, contactIndex.first(100));
+        assertEquals(ContactIndex.none, contactIndex.first(-1));
+    }
+}
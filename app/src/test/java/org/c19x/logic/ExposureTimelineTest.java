@@ -0,0 +1,82 @@
+package org.c19x.logic;
+
+import org.c19x.data.type.ExposureHistogram;
+import org.c19x.data.type.ExposurePeriod;
+import org.c19x.data.type.ExposureTimeline;
+import org.c19x.data.type.RSSI;
+import org.c19x.data.type.TimeInterval;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ExposureTimelineTest {
+    private final static long minuteMillis = TimeInterval.minute.value * 1000;
+    private final static long time = 1000000000000L;
+
+    @Test
+    public void boundaryMinutes() {
+        final ExposureTimeline exposureTimeline = new ExposureTimeline(time, new TimeInterval(10 * TimeInterval.minute.value));
+        // Window of 10 minutes covers slots 0 to 10 inclusive
+        assertEquals(11, exposureTimeline.value.length);
+        exposureTimeline.add(time, -10);
+        exposureTimeline.add(time - minuteMillis + 1, -20);
+        exposureTimeline.add(time - minuteMillis, -30);
+        exposureTimeline.add(time - 10 * minuteMillis, -40);
+        exposureTimeline.add(time - 11 * minuteMillis, -50);
+        // Encounters after reference time count as the latest minute
+        exposureTimeline.add(time + minuteMillis, -5);
+        assertEquals(-5, exposureTimeline.value[0]);
+        assertEquals(-30, exposureTimeline.value[1]);
+        assertEquals(-40, exposureTimeline.value[10]);
+        assertEquals(3, exposureTimeline.histogram().period(new RSSI(-127)).value);
+        // Rebasing by a minute drops the oldest minute
+        final ExposureTimeline rebased = exposureTimeline.rebased(time + minuteMillis);
+        assertEquals(ExposureTimeline.none, rebased.value[0]);
+        assertEquals(-5, rebased.value[1]);
+        assertEquals(-30, rebased.value[2]);
+        assertEquals(2, rebased.histogram().period(new RSSI(-127)).value);
+    }
+
+    @Test
+    public void nearestEncounter() {
+        final ExposureTimeline exposureTimeline = new ExposureTimeline(time, TimeInterval.hour);
+        exposureTimeline.add(time, -70);
+        exposureTimeline.add(time, -50);
+        exposureTimeline.add(time, -80);
+        assertEquals(-50, exposureTimeline.value[0]);
+        // RSSI is clamped to [-127, 0]
+        exposureTimeline.add(time - minuteMillis, 5);
+        exposureTimeline.add(time - 2 * minuteMillis, -200);
+        assertEquals(0, exposureTimeline.value[1]);
+        assertEquals(-127, exposureTimeline.value[2]);
+    }
+
+    @Test
+    public void histogramBucketEdges() {
+        final ExposureHistogram exposureHistogram = new ExposureHistogram();
+        exposureHistogram.add(5);
+        exposureHistogram.add(0);
+        exposureHistogram.add(-50);
+        exposureHistogram.add(-51);
+        exposureHistogram.add(-127);
+        exposureHistogram.add(-128);
+        assertEquals(2, exposureHistogram.value[0]);
+        assertEquals(1, exposureHistogram.value[50]);
+        assertEquals(1, exposureHistogram.value[51]);
+        assertEquals(2, exposureHistogram.value[127]);
+        // Threshold is inclusive
+        assertEquals(3, exposureHistogram.period(new RSSI(-50)).value);
+        assertEquals(4, exposureHistogram.period(new RSSI(-51)).value);
+        assertEquals(2, exposureHistogram.period(new RSSI(0)).value);
+        assertEquals(0, exposureHistogram.period(new RSSI(1)).value);
+        assertEquals(6, exposureHistogram.period(new RSSI(-127)).value);
+        assertEquals(6, exposureHistogram.period(new RSSI(-200)).value);
+        // Multiple thresholds agree with single threshold
+        final RSSI[] thresholds = {new RSSI(1), new RSSI(0), new RSSI(-50), new RSSI(-51), new RSSI(-127), new RSSI(-200)};
+        final ExposurePeriod[] periods = exposureHistogram.period(thresholds);
+        for (int i = 0; i < thresholds.length; i++) {
+            assertEquals(exposureHistogram.period(thresholds[i]).value, periods[i].value);
+        }
+        assertEquals(4, exposureHistogram.exposureProximity().value.size());
+    }
+}
@@ -0,0 +1,116 @@
+package org.c19x.logic;
+
+import org.c19x.data.type.BeaconCode;
+import org.c19x.data.type.BeaconCodeSeed;
+import org.c19x.data.type.Contact;
+import org.c19x.data.type.Day;
+import org.c19x.data.type.ExposureTimeline;
+import org.c19x.data.type.InfectedCodes;
+import org.c19x.data.type.InfectionData;
+import org.c19x.data.type.RSSI;
+import org.c19x.data.type.Status;
+import org.c19x.data.type.Time;
+import org.c19x.data.type.TimeInterval;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class IncrementalRiskAnalysisTest {
+    private final static long dayMillis = TimeInterval.day.value * 1000;
+    private final static long hourMillis = TimeInterval.hour.value * 1000;
+    private final static int day = 365;
+    private final static Time time = new Time(Day.epoch + (day + 1L) * dayMillis - 1);
+    private final static TimeInterval window = new TimeInterval(14 * TimeInterval.day.value);
+    private final static BeaconCodeSeed seedA = new BeaconCodeSeed(1);
+    private final static BeaconCodeSeed seedB = new BeaconCodeSeed(2);
+
+    @Test
+    public void seedWithdrawnWhileMatchingContactArrives() {
+        final IncrementalRiskAnalysis incremental = new IncrementalRiskAnalysis();
+        final ConcreteRiskAnalysis full = new ConcreteRiskAnalysis();
+        final InfectionData infectedAB = infectionData(seedA, seedB);
+        final long codeA = code(full.infectedCodes(infectedAB), seedA);
+        final Deque<Contact> contacts = new ArrayDeque<>();
+        contacts.add(contact(time.value.getTime() - 3 * hourMillis, codeA));
+        // Run 1, seed A infected
+        assertEquals(1, exposure(assertMatch(incremental, full, contacts, infectedAB)));
+        // Run 2, seed A withdrawn in the same run that another contact with its code arrives
+        final InfectionData infectedB = infectionData(seedB);
+        contacts.add(contact(time.value.getTime() - hourMillis, codeA));
+        assertEquals(0, exposure(assertMatch(incremental, full, contacts, infectedB)));
+        // Run 3, no changes
+        assertEquals(0, exposure(assertMatch(incremental, full, contacts, infectedB)));
+    }
+
+    @Test
+    public void seedAddedWhileMatchingContactArrives() {
+        final IncrementalRiskAnalysis incremental = new IncrementalRiskAnalysis();
+        final ConcreteRiskAnalysis full = new ConcreteRiskAnalysis();
+        final InfectionData infectedB = infectionData(seedB);
+        final InfectionData infectedAB = infectionData(seedA, seedB);
+        final long codeA = code(full.infectedCodes(infectedAB), seedA);
+        final Deque<Contact> contacts = new ArrayDeque<>();
+        contacts.add(contact(time.value.getTime() - 3 * hourMillis, codeA));
+        assertEquals(0, exposure(assertMatch(incremental, full, contacts, infectedB)));
+        // Seed A added in the same run that another contact with its code arrives
+        contacts.add(contact(time.value.getTime() - hourMillis, codeA));
+        assertEquals(2, exposure(assertMatch(incremental, full, contacts, infectedAB)));
+    }
+
+    @Test
+    public void contactAtWatermarkTimeInLaterBatch() {
+        final IncrementalRiskAnalysis incremental = new IncrementalRiskAnalysis();
+        final ConcreteRiskAnalysis full = new ConcreteRiskAnalysis();
+        final InfectionData infectedA = infectionData(seedA);
+        final long codeA = code(full.infectedCodes(infectedA), seedA);
+        final long contactTime = time.value.getTime() - hourMillis;
+        final Deque<Contact> contacts = new ArrayDeque<>();
+        contacts.add(contact(contactTime, codeA + 1));
+        assertEquals(0, exposure(assertMatch(incremental, full, contacts, infectedA)));
+        // Contact in the same millisecond as the last contact matched, committed in a later batch
+        contacts.add(contact(contactTime, codeA));
+        assertEquals(1, exposure(assertMatch(incremental, full, contacts, infectedA)));
+        // Run with no new contacts
+        assertEquals(1, exposure(assertMatch(incremental, full, contacts, infectedA)));
+    }
+
+    /**
+     * Incremental match must agree with full recompute.
+     */
+    private static ExposureTimeline assertMatch(IncrementalRiskAnalysis incremental, ConcreteRiskAnalysis full, Deque<Contact> contacts, InfectionData infectionData) {
+        final ExposureTimeline expected = full.match(contacts, full.infectedCodes(infectionData), time, window);
+        final ExposureTimeline actual = incremental.match(contacts, infectionData, time, window);
+        assertArrayEquals(expected.value, actual.value);
+        return actual;
+    }
+
+    private static InfectionData infectionData(BeaconCodeSeed... seeds) {
+        final InfectionData infectionData = new InfectionData();
+        for (final BeaconCodeSeed seed : seeds) {
+            infectionData.value.put(seed, Status.infectious);
+            infectionData.day.put(seed, new Day(day));
+        }
+        return infectionData;
+    }
+
+    private static long code(InfectedCodes infectedCodes, BeaconCodeSeed seed) {
+        for (int i = 0; i < infectedCodes.size(); i++) {
+            if (infectedCodes.seed(i) == seed.value) {
+                return infectedCodes.codes[i];
+            }
+        }
+        throw new IllegalArgumentException();
+    }
+
+    private static Contact contact(long time, long code) {
+        return new Contact(new Time(time), new RSSI(-50), new BeaconCode(code));
+    }
+
+    private static int exposure(ExposureTimeline exposureTimeline) {
+        return exposureTimeline.histogram().period(new RSSI(-127)).value;
+    }
+}
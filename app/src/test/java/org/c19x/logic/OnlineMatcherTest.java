@@ -0,0 +1,112 @@
+package org.c19x.logic;
+
+import org.c19x.data.type.Advice;
+import org.c19x.data.type.BeaconCode;
+import org.c19x.data.type.Day;
+import org.c19x.data.type.ExposurePeriod;
+import org.c19x.data.type.ExposureTimeline;
+import org.c19x.data.type.InfectedCodes;
+import org.c19x.data.type.RSSI;
+import org.c19x.data.type.RiskAssessment;
+import org.c19x.data.type.Status;
+import org.c19x.data.type.Time;
+import org.c19x.data.type.TimeInterval;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class OnlineMatcherTest {
+    private final static long dayMillis = TimeInterval.day.value * 1000;
+    private final static long minuteMillis = TimeInterval.minute.value * 1000;
+    private final static int day = 365;
+    private final static long code = 42;
+    /// Start of day after the day of the infected seed
+    private final static long boundary = Day.epoch + (day + 1L) * dayMillis;
+
+    @Test
+    public void dayBoundary() {
+        // Within clock skew either side of the day of the seed
+        assertNotNull(match(boundary + 59 * minuteMillis, code));
+        assertNotNull(match(boundary - 1, code));
+        assertNotNull(match(boundary - dayMillis - 59 * minuteMillis, code));
+        // Beyond clock skew
+        assertNull(match(boundary + 61 * minuteMillis, code));
+        assertNull(match(boundary - dayMillis - 61 * minuteMillis, code));
+        // Unknown code
+        assertNull(match(boundary - 1, code + 1));
+    }
+
+    @Test
+    public void agreesWithRiskAnalysis() {
+        final ConcreteRiskAnalysis riskAnalysis = new ConcreteRiskAnalysis(1, TimeInterval.hour);
+        for (long offset = -3 * 60; offset <= 3 * 60; offset += 7) {
+            final long time = boundary + offset * minuteMillis;
+            final boolean expected = (riskAnalysis.fromDay(time) <= day && day <= riskAnalysis.toDay(time));
+            assertEquals(expected, match(time, code) != null);
+        }
+    }
+
+    @Test
+    public void changesOnly() {
+        final long time = boundary - minuteMillis;
+        final OnlineMatcher onlineMatcher = onlineMatcher(time);
+        final RiskAssessment riskAssessment = onlineMatcher.match(new Time(time), new BeaconCode(code), new RSSI(-50));
+        assertNotNull(riskAssessment);
+        assertEquals(Advice.selfIsolation, riskAssessment.advice);
+        assertEquals(Status.infectious, riskAssessment.contactStatus);
+        assertEquals(1, riskAssessment.exposurePeriod.value);
+        // Same advice and contact status
+        assertNull(onlineMatcher.match(new Time(time - minuteMillis), new BeaconCode(code), new RSSI(-50)));
+    }
+
+    @Test
+    public void replayAfterStaleAnalysis() {
+        final long time = boundary - minuteMillis;
+        final OnlineMatcher onlineMatcher = onlineMatcher(time);
+        assertNotNull(onlineMatcher.match(new Time(time), new BeaconCode(code), new RSSI(-50)));
+        assertFalse(onlineMatcher.committed(new Time(time - 1)));
+        assertTrue(onlineMatcher.committed(new Time(time)));
+        // Analysis of contacts committed before the detection keeps the online exposure
+        final RiskAssessment stale = reset(onlineMatcher, riskAssessment(time, time - minuteMillis));
+        assertEquals(Advice.selfIsolation, stale.advice);
+        assertEquals(Status.infectious, stale.contactStatus);
+        assertEquals(1, stale.exposurePeriod.value);
+        assertTrue(onlineMatcher.committed(new Time(time)));
+        // Analysis of contacts committed after the detection is used as is
+        final RiskAssessment analysed = riskAssessment(time + minuteMillis, time + 1);
+        assertSame(analysed, reset(onlineMatcher, analysed));
+        assertFalse(onlineMatcher.committed(new Time(time + 1)));
+    }
+
+    /**
+     * Match detection against fresh matcher for infected code on day of seed, where a single
+     * exposure minute changes advice.
+     */
+    private static RiskAssessment match(long time, long code) {
+        return onlineMatcher(time).match(new Time(time), new BeaconCode(code), new RSSI(-50));
+    }
+
+    private static OnlineMatcher onlineMatcher(long time) {
+        final OnlineMatcher onlineMatcher = new OnlineMatcher(TimeInterval.hour);
+        reset(onlineMatcher, riskAssessment(time, Long.MIN_VALUE));
+        return onlineMatcher;
+    }
+
+    private static RiskAssessment reset(OnlineMatcher onlineMatcher, RiskAssessment riskAssessment) {
+        return onlineMatcher.reset(riskAssessment, Status.healthy, Advice.normal, new RSSI(-77), new ExposurePeriod(1));
+    }
+
+    /**
+     * Assessment without exposure for infected code on day of seed.
+     */
+    private static RiskAssessment riskAssessment(long time, long contactWatermark) {
+        final InfectedCodes infectedCodes = new InfectedCodes(new long[]{code}, new int[]{0}, new long[]{1}, new byte[]{(byte) Status.toRawValue(Status.infectious)}, new int[]{day});
+        final ExposureTimeline exposureTimeline = new ExposureTimeline(time, TimeInterval.day);
+        return new RiskAssessment(Advice.normal, Status.healthy, new ExposurePeriod(0), null, null, null, exposureTimeline, infectedCodes, contactWatermark);
+    }
+}
@@ -0,0 +1,162 @@
+package org.c19x.logic;
+
+import org.c19x.data.type.ExposureHistogram;
+import org.c19x.data.type.ExposurePeriod;
+import org.c19x.data.type.ExposureTimeline;
+import org.c19x.data.type.InfectedCodes;
+import org.c19x.data.type.RSSI;
+import org.c19x.data.type.TimeInterval;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Scaling benchmark for the risk matching pipeline on synthetic datasets, reporting throughput,
+ * latency percentiles and allocation per run for infected code expansion and contact matching.
+ * Skipped unless enabled, e.g. ./gradlew testDebugUnitTest -Dbenchmark=true --tests '*RiskAnalysisBenchmark'
+ * <p>
+ * Parameters (system properties):
+ * benchmark.contacts   Comma separated contact counts (default 10000,100000,1000000)
+ * benchmark.seeds      Comma separated infected seed counts (default 1000,10000,500000)
+ * benchmark.matchRate  Fraction of contacts matching infected codes (default 0.01)
+ * benchmark.warmup     Warm up runs per configuration (default 2)
+ * benchmark.runs       Measured runs per configuration (default 10)
+ * benchmark.threads    Parallelism for infected code expansion (default available processors)
+ * Large seed counts need a large heap, about 3KB per seed, thus the test heap is raised to 4GB
+ * when enabled, override with -Dbenchmark.heap=8g for larger seed counts.
+ */
+public class RiskAnalysisBenchmark {
+    private final static TimeInterval window = new TimeInterval(14 * TimeInterval.day.value);
+    private final static RSSI proximity = new RSSI(-65);
+
+    @Test
+    public void benchmark() {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+        final int[] contactCounts = ints(System.getProperty("benchmark.contacts", "10000,100000,1000000"));
+        final int[] seedCounts = ints(System.getProperty("benchmark.seeds", "1000,10000,500000"));
+        final double matchRate = Double.parseDouble(System.getProperty("benchmark.matchRate", "0.01"));
+        final int warmup = Integer.getInteger("benchmark.warmup", 2);
+        final int runs = Integer.getInteger("benchmark.runs", 10);
+        final int threads = Integer.getInteger("benchmark.threads", Runtime.getRuntime().availableProcessors());
+        final ConcreteRiskAnalysis riskAnalysis = new ConcreteRiskAnalysis(threads);
+        System.err.println(String.format(Locale.US, "%-8s %9s %8s %10s %12s %10s %10s %10s %12s %8s",
+                "stage", "contacts", "seeds", "matches", "items/s", "p50 ms", "p90 ms", "p99 ms", "alloc/run", "exposure"));
+        for (final int seedCount : seedCounts) {
+            for (final int contactCount : contactCounts) {
+                final BenchmarkDataset dataset = new BenchmarkDataset(seedCount * 31L + contactCount, contactCount, seedCount, matchRate, window, riskAnalysis);
+                final Result expansion = measure(warmup, runs, () -> riskAnalysis.infectedCodes(dataset.infectionData).size());
+                report("expand", dataset, expansion, seedCount, -1);
+                final InfectedCodes infectedCodes = dataset.infectedCodes;
+                final int[] exposure = new int[1];
+                final Result matching = measure(warmup, runs, () -> {
+                    final ExposureTimeline exposureTimeline = riskAnalysis.match(dataset.contacts, infectedCodes, dataset.time, dataset.window);
+                    final ExposureHistogram exposureHistogram = exposureTimeline.histogram();
+                    final ExposurePeriod exposurePeriod = exposureHistogram.period(proximity);
+                    exposure[0] = exposurePeriod.value;
+                    return exposurePeriod.value;
+                });
+                report("match", dataset, matching, contactCount, exposure[0]);
+            }
+        }
+    }
+
+    private interface Run {
+        int run();
+    }
+
+    private final static class Result {
+        private final long[] nanos;
+        private final long allocatedBytes;
+
+        private Result(long[] nanos, long allocatedBytes) {
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        private double percentileMillis(final double percentile) {
+            final long[] sorted = nanos.clone();
+            Arrays.sort(sorted);
+            final int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+
+        private double meanSeconds() {
+            long total = 0;
+            for (final long value : nanos) {
+                total += value;
+            }
+            return total / 1e9 / nanos.length;
+        }
+    }
+
+    /**
+     * Time runs after warm up, and measure mean bytes allocated per run by all threads, including
+     * the fork-join threads for infected code expansion, where supported by the JVM (-1 otherwise).
+     */
+    private final static Result measure(final int warmup, final int runs, final Run run) {
+        int sink = 0;
+        for (int i = 0; i < warmup; i++) {
+            sink += run.run();
+        }
+        final long[] nanos = new long[Math.max(1, runs)];
+        final Map<Long, Long> allocatedBefore = allocatedBytes();
+        for (int i = 0; i < nanos.length; i++) {
+            final long start = System.nanoTime();
+            sink += run.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        final Map<Long, Long> allocatedAfter = allocatedBytes();
+        if (sink == Integer.MIN_VALUE) {
+            System.err.println(sink);
+        }
+        if (allocatedBefore == null || allocatedAfter == null) {
+            return new Result(nanos, -1);
+        }
+        // Threads started during runs count from zero, threads that ended during runs are not counted
+        long allocated = 0;
+        for (final Map.Entry<Long, Long> entry : allocatedAfter.entrySet()) {
+            final Long before = allocatedBefore.get(entry.getKey());
+            allocated += entry.getValue() - (before == null ? 0 : before);
+        }
+        return new Result(nanos, allocated / nanos.length);
+    }
+
+    /**
+     * Bytes allocated by each live thread, or null if not supported.
+     */
+    private final static Map<Long, Long> allocatedBytes() {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                final long[] threadIds = sunThreadMXBean.getAllThreadIds();
+                final long[] allocated = sunThreadMXBean.getThreadAllocatedBytes(threadIds);
+                final Map<Long, Long> allocatedBytes = new HashMap<>(threadIds.length);
+                for (int i = 0; i < threadIds.length; i++) {
+                    if (allocated[i] >= 0) {
+                        allocatedBytes.put(threadIds[i], allocated[i]);
+                    }
+                }
+                return allocatedBytes;
+            }
+        }
+        return null;
+    }
+
+    private final static void report(final String stage, final BenchmarkDataset dataset, final Result result, final int items, final int exposure) {
+        System.err.println(String.format(Locale.US, "%-8s %9d %8d %10d %12.0f %10.2f %10.2f %10.2f %12d %8d",
+                stage, dataset.contacts.size(), dataset.infectionData.value.size(), dataset.matches,
+                items / result.meanSeconds(), result.percentileMillis(0.5), result.percentileMillis(0.9), result.percentileMillis(0.99),
+                result.allocatedBytes, exposure));
+    }
+
+    private final static int[] ints(final String values) {
+        return Arrays.stream(values.split(",")).map(String::trim).filter(s -> !s.isEmpty()).mapToInt(Integer::parseInt).toArray();
+    }
+}
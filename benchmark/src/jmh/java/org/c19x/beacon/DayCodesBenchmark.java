@@ -0,0 +1,64 @@
+package org.c19x.beacon;
+
+import org.c19x.data.type.BeaconCode;
+import org.c19x.data.type.BeaconCodeSeed;
+import org.c19x.data.type.DayCode;
+import org.c19x.data.type.SharedSecret;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Day code derivation for day 365, eager for all days and lazy up to day 365, which is about 1,460
+ * hashes down the chain from the last day, and beacon code derivation for one seed and in bulk.
+ */
+@State(Scope.Thread)
+public class DayCodesBenchmark {
+    private SharedSecret sharedSecret;
+    private BeaconCodeSeed beaconCodeSeed;
+    private long[] seeds;
+    private long[] codes;
+    private int day;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(0);
+        final byte[] secret = new byte[32];
+        random.nextBytes(secret);
+        sharedSecret = new SharedSecret(secret);
+        beaconCodeSeed = new BeaconCodeSeed(random.nextLong());
+        seeds = new long[256];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = random.nextLong();
+        }
+        codes = new long[seeds.length * ConcreteBeaconCodes.codesPerDay];
+        day = 365;
+    }
+
+    @Benchmark
+    public DayCode dayCodesEager() {
+        return new ConcreteDayCodes(sharedSecret).dayCode(day);
+    }
+
+    @Benchmark
+    public DayCode dayCodesLazy() {
+        return new ConcreteDayCodes(sharedSecret, 64).dayCode(day);
+    }
+
+    @Benchmark
+    public BeaconCode[] beaconCodes() {
+        return ConcreteBeaconCodes.beaconCodes(beaconCodeSeed, ConcreteBeaconCodes.codesPerDay);
+    }
+
+    /**
+     * Bulk derivation of 256 seeds, divide by 256 for cost per seed.
+     */
+    @Benchmark
+    public long[] beaconCodesBulk() {
+        ConcreteBeaconCodes.beaconCodes(seeds, 0, seeds.length, codes);
+        return codes;
+    }
+}
@@ -0,0 +1,25 @@
+package org.c19x.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Log message rendering, paid on every log call whether or not the message is written.
+ */
+@State(Scope.Thread)
+public class LoggerBenchmark {
+    private final String tag = LoggerBenchmark.class.getName();
+    private final Long code = 0x0123456789ABCDEFL;
+    private final Integer rssi = -70;
+
+    @Benchmark
+    public String renderPlain() {
+        return Logger.render("Analysis coalesced");
+    }
+
+    @Benchmark
+    public String renderValues() {
+        return Logger.render("Online match (code={},rssi={},tag={})", code, rssi, tag);
+    }
+}
@@ -0,0 +1,33 @@
+package org.c19x.data.type;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Contact pattern rendering from exposure proximity, for one to all RSSI values.
+ */
+@State(Scope.Thread)
+public class ExposureProximityBenchmark {
+    @Param({"1", "16", "128"})
+    public int entries;
+    private ExposureProximity exposureProximity;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(0);
+        exposureProximity = new ExposureProximity();
+        for (int i = 0; i < entries; i++) {
+            exposureProximity.value.put(new RSSI(-i), 1 + random.nextInt(1440));
+        }
+    }
+
+    @Benchmark
+    public ContactPattern contactPattern() {
+        return exposureProximity.contactPattern();
+    }
+}
@@ -0,0 +1,38 @@
+package org.c19x.data.type;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Infection data parsing from server JSON, where each entry is seed to status and day.
+ */
+@State(Scope.Thread)
+public class InfectionDataBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int seeds;
+    private String json;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(0);
+        final StringBuilder stringBuilder = new StringBuilder("{");
+        for (int i = 0; i < seeds; i++) {
+            if (i > 0) {
+                stringBuilder.append(',');
+            }
+            stringBuilder.append('"').append(random.nextLong()).append("\":\"")
+                    .append(1 + random.nextInt(3)).append(',').append(random.nextInt(365)).append('"');
+        }
+        json = stringBuilder.append('}').toString();
+    }
+
+    @Benchmark
+    public InfectionData parse() {
+        return new InfectionData(json);
+    }
+}
@@ -0,0 +1,51 @@
+package org.c19x.logic;
+
+import org.c19x.data.type.SharedSecret;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Message encryption and decryption round trip, as used for posting status and fetching messages.
+ */
+@State(Scope.Thread)
+public class AESBenchmark {
+    @Param({"16", "256", "4096"})
+    public int length;
+    private SharedSecret sharedSecret;
+    private String value;
+    private String encrypted;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(0);
+        final byte[] secret = new byte[32];
+        random.nextBytes(secret);
+        sharedSecret = new SharedSecret(secret);
+        final StringBuilder stringBuilder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            stringBuilder.append((char) ('a' + random.nextInt(26)));
+        }
+        value = stringBuilder.toString();
+        encrypted = AES.encrypt(sharedSecret, value);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return AES.encrypt(sharedSecret, value);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return AES.decrypt(sharedSecret, encrypted);
+    }
+
+    @Benchmark
+    public String roundTrip() {
+        return AES.decrypt(sharedSecret, AES.encrypt(sharedSecret, value));
+    }
+}
@@ -0,0 +1,31 @@
+package android.security.keystore;
+
+import java.security.spec.AlgorithmParameterSpec;
+
+/**
+ * JVM stand-in for Android key store key generation parameters, for compiling the app crypto
+ * service only. The Android key store itself is unavailable on the JVM.
+ */
+public final class KeyGenParameterSpec implements AlgorithmParameterSpec {
+
+    private KeyGenParameterSpec() {
+    }
+
+    public static final class Builder {
+
+        public Builder(String keystoreAlias, int purposes) {
+        }
+
+        public Builder setBlockModes(String... blockModes) {
+            return this;
+        }
+
+        public Builder setEncryptionPaddings(String... paddings) {
+            return this;
+        }
+
+        public KeyGenParameterSpec build() {
+            return new KeyGenParameterSpec();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package android.security.keystore;
+
+/**
+ * JVM stand-in for Android key store constants, for compiling the app crypto service only. The
+ * Android key store itself is unavailable on the JVM.
+ */
+public final class KeyProperties {
+    public static final String KEY_ALGORITHM_AES = "AES";
+    public static final int PURPOSE_ENCRYPT = 1;
+    public static final int PURPOSE_DECRYPT = 2;
+    public static final String BLOCK_MODE_GCM = "GCM";
+    public static final String ENCRYPTION_PADDING_NONE = "NoPadding";
+}